@@ -0,0 +1,65 @@
+package com.stardevllc.config.benchmark;
+
+import com.stardevllc.config.file.yaml.YamlConfig;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.TimeUnit;
+
+/*
+ * Loads a generated YAML file through the stream reader and through a memory mapping of the file. The file has a
+ * section per entity with a handful of values each, like the generated data files the mapped mode is meant for.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 5)
+@Measurement(iterations = 5, time = 5)
+@Fork(1)
+public class LoadBenchmark {
+    @Param({"1000", "100000"})
+    public int entities;
+
+    private Path file;
+
+    @Setup
+    public void createFile() throws IOException {
+        file = Files.createTempFile("load-benchmark", ".yml");
+        try (Writer writer = Files.newBufferedWriter(file, StandardCharsets.UTF_8)) {
+            for (int i = 0; i < entities; i++) {
+                writer.write("entity" + i + ":\n");
+                writer.write("  name: \"Entity number " + i + " with a few more characters\"\n");
+                writer.write("  kills: " + i * 7 + "\n");
+                writer.write("  ratio: " + i / 3.0 + "\n");
+                writer.write("  enabled: " + (i % 2 == 0) + "\n");
+                writer.write("  tags: [alpha, beta, gamma]\n");
+            }
+        }
+    }
+
+    @TearDown
+    public void deleteFile() throws IOException {
+        Files.deleteIfExists(file);
+    }
+
+    @Benchmark
+    public YamlConfig stream() {
+        return load(false);
+    }
+
+    @Benchmark
+    public YamlConfig memoryMapped() {
+        return load(true);
+    }
+
+    private YamlConfig load(boolean memoryMapped) {
+        YamlConfig config = new YamlConfig(file.toFile());
+        config.options().memoryMapped(memoryMapped);
+        config.load();
+        return config;
+    }
+}
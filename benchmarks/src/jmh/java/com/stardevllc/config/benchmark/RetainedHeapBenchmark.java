@@ -0,0 +1,93 @@
+package com.stardevllc.config.benchmark;
+
+import com.stardevllc.config.Interner;
+import com.stardevllc.config.file.yaml.YamlConfig;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.StringReader;
+import java.lang.ref.Reference;
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryMXBean;
+import java.util.ArrayList;
+import java.util.List;
+
+/*
+ * Retained heap is not something JMH measures, so this loads the same set of per-player configs with and without an
+ * interner, keeps them all reachable and reports the heap left in use after a full collection, divided by their count.
+ * Run it with ./gradlew :config-benchmarks:retainedHeap
+ */
+public final class RetainedHeapBenchmark {
+    private static final int CONFIGS = 5_000;
+    private static final String[] LOCALES = {"en_US", "de_DE", "fr_FR", "es_ES"};
+
+    private RetainedHeapBenchmark() {
+    }
+
+    public static void main(String[] args) throws IOException {
+        int configs = args.length > 0 ? Integer.parseInt(args[0]) : CONFIGS;
+        List<String> sources = new ArrayList<>(configs);
+        for (int i = 0; i < configs; i++) {
+            sources.add(playerFile(i));
+        }
+
+        // The first round only warms up, its numbers include classes and caches loaded along the way
+        measure(sources, false, false);
+        System.out.printf("%-12s %-10s %14s%n", "interner", "pathIndex", "bytes/config");
+        for (boolean pathIndex : new boolean[] {false, true}) {
+            for (boolean interned : new boolean[] {false, true}) {
+                long bytes = measure(sources, interned, pathIndex);
+                System.out.printf("%-12s %-10s %14d%n", interned ? "weak" : "none", pathIndex, bytes / sources.size());
+            }
+        }
+    }
+
+    private static long measure(List<String> sources, boolean interned, boolean pathIndex) throws IOException {
+        Interner interner = interned ? Interner.weak() : null;
+        long before = usedHeap();
+        List<YamlConfig> loaded = new ArrayList<>(sources.size());
+        for (String source : sources) {
+            YamlConfig config = new YamlConfig((File) null);
+            config.options().interner(interner).pathIndex(pathIndex);
+            try {
+                config.load(new StringReader(source));
+            } catch (Exception e) {
+                throw new IOException(e);
+            }
+            loaded.add(config);
+        }
+        long after = usedHeap();
+        Reference.reachabilityFence(loaded);
+        return after - before;
+    }
+
+    // Loaded files are all shaped the same, with values that repeat between players
+    private static String playerFile(int player) {
+        StringBuilder builder = new StringBuilder();
+        builder.append("name: Player").append(player).append('\n');
+        builder.append("stats:\n");
+        builder.append("  kills: ").append(player % 500).append('\n');
+        builder.append("  deaths: ").append(player % 300).append('\n');
+        builder.append("  rank: ").append(player % 3 == 0 ? "gold" : "silver").append('\n');
+        builder.append("settings:\n");
+        builder.append("  locale: ").append(LOCALES[player % LOCALES.length]).append('\n');
+        builder.append("  chat: ").append(player % 2 == 0 ? "enabled" : "disabled").append('\n');
+        builder.append("  scoreboard: sidebar\n");
+        builder.append("homes:\n");
+        for (int home = 0; home < 3; home++) {
+            builder.append("  home").append(home).append(":\n");
+            builder.append("    world: world\n");
+            builder.append("    x: ").append(home * 100).append('\n');
+            builder.append("    z: ").append(home * -50).append('\n');
+        }
+        return builder.toString();
+    }
+
+    private static long usedHeap() {
+        MemoryMXBean memory = ManagementFactory.getMemoryMXBean();
+        for (int i = 0; i < 4; i++) {
+            System.gc();
+        }
+        return memory.getHeapMemoryUsage().getUsed();
+    }
+}
@@ -0,0 +1,315 @@
+package com.stardevllc.config.processor;
+
+import javax.annotation.processing.AbstractProcessor;
+import javax.annotation.processing.RoundEnvironment;
+import javax.annotation.processing.SupportedAnnotationTypes;
+import javax.lang.model.SourceVersion;
+import javax.lang.model.element.*;
+import javax.lang.model.type.ArrayType;
+import javax.lang.model.type.DeclaredType;
+import javax.lang.model.type.TypeKind;
+import javax.lang.model.type.TypeMirror;
+import javax.tools.Diagnostic;
+import javax.tools.StandardLocation;
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.io.Writer;
+import java.util.*;
+
+/**
+ * Writes a {@code ConfigSerializer} for every record marked with {@code @GenerateSerializer} and lists them in
+ * {@code META-INF/services}, so the config library registers them on start without looking at the records reflectively.
+ * <p>
+ * The generated class also has a static {@code toMap} method, which the record's {@code serialize()} calls, as in
+ * {@code return PointConfigSerializer.toMap(this);} for a record named {@code Point}.
+ * <p>
+ * Keys are the component names, or the value of {@code @ConfigKey} on a component. The alias is the value of
+ * {@code @SerializableAs} or the binary name of the record, the same as {@code ConfigSerialization.getAlias} would give.
+ * <p>
+ * Numbers, including {@code int[]}, {@code long[]} and {@code double[]} arrays and lists or sets of boxed numbers, are
+ * converted to the component's type when loading. Other arrays can not be loaded back and are rejected.
+ */
+@SupportedAnnotationTypes(SerializerProcessor.GENERATE_SERIALIZER)
+public class SerializerProcessor extends AbstractProcessor {
+    static final String GENERATE_SERIALIZER = "com.stardevllc.config.serialization.GenerateSerializer";
+    private static final String CONFIG_SERIALIZABLE = "com.stardevllc.config.serialization.ConfigSerializable";
+    private static final String CONFIG_SERIALIZER = "com.stardevllc.config.serialization.ConfigSerializer";
+    private static final String SERIALIZABLE_AS = "com.stardevllc.config.serialization.SerializableAs";
+    private static final String CONFIG_KEY = "com.stardevllc.config.serialization.ConfigKey";
+    private static final String NUMBER_CONVERSIONS = "com.stardevllc.config.NumberConversions";
+    private static final String SERVICE_FILE = "META-INF/services/" + CONFIG_SERIALIZER;
+
+    private final Set<String> generated = new LinkedHashSet<>();
+
+    @Override
+    public SourceVersion getSupportedSourceVersion() {
+        return SourceVersion.latestSupported();
+    }
+
+    @Override
+    public boolean process(Set<? extends TypeElement> annotations, RoundEnvironment roundEnv) {
+        for (TypeElement annotation : annotations) {
+            for (Element element : roundEnv.getElementsAnnotatedWith(annotation)) {
+                if (isValid(element)) {
+                    generate((TypeElement) element);
+                }
+            }
+        }
+
+        if (roundEnv.processingOver() && !generated.isEmpty()) {
+            writeServiceFile();
+        }
+        return true;
+    }
+
+    private boolean isValid(Element element) {
+        if (element.getKind() != ElementKind.RECORD) {
+            return error(element, "@GenerateSerializer can only be used on records");
+        }
+
+        TypeElement type = (TypeElement) element;
+        if (!type.getTypeParameters().isEmpty()) {
+            return error(element, "@GenerateSerializer can not be used on generic records");
+        }
+
+        TypeElement serializable = processingEnv.getElementUtils().getTypeElement(CONFIG_SERIALIZABLE);
+        if (serializable == null || !processingEnv.getTypeUtils().isAssignable(type.asType(), processingEnv.getTypeUtils().erasure(serializable.asType()))) {
+            return error(element, "Records with @GenerateSerializer must implement ConfigSerializable");
+        }
+
+        for (Element current = type; current instanceof TypeElement; current = current.getEnclosingElement()) {
+            if (current.getModifiers().contains(Modifier.PRIVATE)) {
+                return error(element, "Records with @GenerateSerializer can not be private or inside a private class");
+            }
+        }
+
+        // Arrays are loaded back as lists, only the ones NumberConversions can fill are turned back into arrays
+        for (RecordComponentElement component : type.getRecordComponents()) {
+            if (component.asType() instanceof ArrayType array && arrayConversion(array) == null) {
+                return error(component, "@GenerateSerializer only supports int[], long[] and double[] arrays");
+            }
+        }
+        return true;
+    }
+
+    private boolean error(Element element, String message) {
+        processingEnv.getMessager().printMessage(Diagnostic.Kind.ERROR, message, element);
+        return false;
+    }
+
+    private void generate(TypeElement type) {
+        String packageName = processingEnv.getElementUtils().getPackageOf(type).getQualifiedName().toString();
+        String typeName = type.getQualifiedName().toString();
+        String simpleName = typeName.substring(packageName.isEmpty() ? 0 : packageName.length() + 1).replace('.', '_') + "ConfigSerializer";
+        String className = packageName.isEmpty() ? simpleName : packageName + "." + simpleName;
+        List<? extends RecordComponentElement> components = type.getRecordComponents();
+
+        StringBuilder source = new StringBuilder();
+        if (!packageName.isEmpty()) {
+            source.append("package ").append(packageName).append(";\n\n");
+        }
+        source.append("// Generated from ").append(typeName).append(" by ").append(SerializerProcessor.class.getName()).append(", do not edit\n");
+        source.append("@SuppressWarnings({\"unchecked\", \"rawtypes\"})\n");
+        source.append("public final class ").append(simpleName).append(" implements ").append(CONFIG_SERIALIZER).append('<').append(typeName).append("> {\n");
+
+        source.append("    @Override\n");
+        source.append("    public Class<").append(typeName).append("> getType() {\n");
+        source.append("        return ").append(typeName).append(".class;\n");
+        source.append("    }\n\n");
+
+        source.append("    @Override\n");
+        source.append("    public String getAlias() {\n");
+        source.append("        return \"").append(escape(alias(type))).append("\";\n");
+        source.append("    }\n\n");
+
+        source.append("    @Override\n");
+        source.append("    public java.util.Map<String, Object> serialize(").append(typeName).append(" value) {\n");
+        source.append("        return toMap(value);\n");
+        source.append("    }\n\n");
+
+        // Static so the record's own serialize() can call it without an instance
+        source.append("    public static java.util.Map<String, Object> toMap(").append(typeName).append(" value) {\n");
+        source.append("        java.util.Map<String, Object> values = java.util.LinkedHashMap.newLinkedHashMap(").append(components.size()).append(");\n");
+        for (RecordComponentElement component : components) {
+            source.append("        values.put(\"").append(escape(key(component))).append("\", ").append(serializeValue(component)).append(");\n");
+        }
+        source.append("        return values;\n");
+        source.append("    }\n\n");
+
+        source.append("    @Override\n");
+        source.append("    public ").append(typeName).append(" deserialize(java.util.Map<String, ?> args) {\n");
+        for (int i = 0; i < components.size(); i++) {
+            source.append("        Object v").append(i).append(" = args.get(\"").append(escape(key(components.get(i)))).append("\");\n");
+        }
+        source.append("        return new ").append(typeName).append('(');
+        for (int i = 0; i < components.size(); i++) {
+            source.append(i == 0 ? "" : ", ").append(deserializeValue(components.get(i).asType(), "v" + i));
+        }
+        source.append(");\n");
+        source.append("    }\n\n");
+
+        source.append("    private static boolean toBoolean(Object value) {\n");
+        source.append("        return value instanceof Boolean bool ? bool : value != null && Boolean.parseBoolean(value.toString());\n");
+        source.append("    }\n\n");
+        source.append("    private static char toChar(Object value) {\n");
+        source.append("        return value instanceof Character character ? character : value == null || value.toString().isEmpty() ? '\\0' : value.toString().charAt(0);\n");
+        source.append("    }\n\n");
+        source.append("    private static <E extends Enum<E>> E toEnum(Class<E> type, Object value) {\n");
+        source.append("        return value == null ? null : type.isInstance(value) ? type.cast(value) : Enum.valueOf(type, value.toString());\n");
+        source.append("    }\n\n");
+        for (String element : new String[] {"int", "long", "double"}) {
+            String name = Character.toUpperCase(element.charAt(0)) + element.substring(1);
+            source.append("    private static ").append(element).append("[] to").append(name).append("Array(Object value) {\n");
+            source.append("        if (value == null || value instanceof ").append(element).append("[]) {\n");
+            source.append("            return (").append(element).append("[]) value;\n");
+            source.append("        }\n");
+            source.append("        java.util.List<?> list = value instanceof java.util.List<?> values ? values : java.util.List.of();\n");
+            source.append("        ").append(element).append("[] result = new ").append(element).append("[list.size()];\n");
+            source.append("        for (int i = 0; i < result.length; i++) {\n");
+            source.append("            result[i] = ").append(NUMBER_CONVERSIONS).append(".to").append(name).append("(list.get(i));\n");
+            source.append("        }\n");
+            source.append("        return result;\n");
+            source.append("    }\n\n");
+        }
+        source.append("    private static java.util.Collection<Object> toCollection(Object value, java.util.Collection<Object> result, java.util.function.Function<Object, Object> element) {\n");
+        source.append("        if (value == null) {\n");
+        source.append("            return null;\n");
+        source.append("        }\n");
+        source.append("        for (Object current : value instanceof java.util.Collection<?> values ? values : java.util.List.of()) {\n");
+        source.append("            result.add(current == null ? null : element.apply(current));\n");
+        source.append("        }\n");
+        source.append("        return result;\n");
+        source.append("    }\n");
+        source.append("}\n");
+
+        try (Writer writer = processingEnv.getFiler().createSourceFile(className, type).openWriter()) {
+            writer.write(source.toString());
+        } catch (IOException e) {
+            error(type, "Could not write " + className + ": " + e.getMessage());
+            return;
+        }
+        generated.add(className);
+    }
+
+    private String serializeValue(RecordComponentElement component) {
+        String getter = "value." + component.getSimpleName() + "()";
+        TypeMirror type = component.asType();
+        if (type.getKind() == TypeKind.CHAR) {
+            return "String.valueOf(" + getter + ")";
+        } else if (isEnum(type)) {
+            return getter + " == null ? null : " + getter + ".name()";
+        }
+        return getter;
+    }
+
+    // Numbers loaded from a file may be of another size than the component, so they go through NumberConversions
+    private String deserializeValue(TypeMirror type, String value) {
+        switch (type.getKind()) {
+            case INT: return NUMBER_CONVERSIONS + ".toInt(" + value + ")";
+            case LONG: return NUMBER_CONVERSIONS + ".toLong(" + value + ")";
+            case DOUBLE: return NUMBER_CONVERSIONS + ".toDouble(" + value + ")";
+            case FLOAT: return NUMBER_CONVERSIONS + ".toFloat(" + value + ")";
+            case SHORT: return NUMBER_CONVERSIONS + ".toShort(" + value + ")";
+            case BYTE: return NUMBER_CONVERSIONS + ".toByte(" + value + ")";
+            case BOOLEAN: return "toBoolean(" + value + ")";
+            case CHAR: return "toChar(" + value + ")";
+            default: break;
+        }
+
+        String erased = processingEnv.getTypeUtils().erasure(type).toString();
+        if (isEnum(type)) {
+            return "toEnum(" + erased + ".class, " + value + ")";
+        } else if (type instanceof ArrayType array) {
+            return arrayConversion(array) + "(" + value + ")";
+        }
+
+        // Numbers in a loaded list keep the size they were read with, so a List<Long> can hold Integers until converted
+        String collection = switch (erased) {
+            case "java.util.List", "java.util.Collection" -> "new java.util.ArrayList<>()";
+            case "java.util.Set" -> "new java.util.LinkedHashSet<>()";
+            default -> null;
+        };
+        if (collection != null && type instanceof DeclaredType declared && declared.getTypeArguments().size() == 1) {
+            String elementType = processingEnv.getTypeUtils().erasure(declared.getTypeArguments().get(0)).toString();
+            String element = numberConversion(elementType);
+            if (element != null) {
+                return "(" + erased + ") toCollection(" + value + ", " + collection + ", e -> (" + elementType + ") " + NUMBER_CONVERSIONS + "." + element + "(e))";
+            }
+        }
+
+        String boxed = numberConversion(erased);
+        if (boxed != null) {
+            return value + " == null ? null : (" + erased + ") " + NUMBER_CONVERSIONS + "." + boxed + "(" + value + ")";
+        } else if (erased.equals("java.lang.Boolean")) {
+            return value + " == null ? null : (Boolean) toBoolean(" + value + ")";
+        } else if (erased.equals("java.lang.Character")) {
+            return value + " == null ? null : (Character) toChar(" + value + ")";
+        } else if (erased.equals("java.lang.String")) {
+            return value + " == null ? null : " + value + ".toString()";
+        }
+        return "(" + erased + ") " + value;
+    }
+
+    private static String numberConversion(String boxed) {
+        return switch (boxed) {
+            case "java.lang.Integer" -> "toInt";
+            case "java.lang.Long" -> "toLong";
+            case "java.lang.Double" -> "toDouble";
+            case "java.lang.Float" -> "toFloat";
+            case "java.lang.Short" -> "toShort";
+            case "java.lang.Byte" -> "toByte";
+            default -> null;
+        };
+    }
+
+    private static String arrayConversion(ArrayType array) {
+        return switch (array.getComponentType().getKind()) {
+            case INT -> "toIntArray";
+            case LONG -> "toLongArray";
+            case DOUBLE -> "toDoubleArray";
+            default -> null;
+        };
+    }
+
+    private boolean isEnum(TypeMirror type) {
+        return type instanceof DeclaredType declared && declared.asElement().getKind() == ElementKind.ENUM;
+    }
+
+    private String key(RecordComponentElement component) {
+        String key = annotationValue(component, CONFIG_KEY);
+        return key == null || key.isEmpty() ? component.getSimpleName().toString() : key;
+    }
+
+    private String alias(TypeElement type) {
+        String alias = annotationValue(type, SERIALIZABLE_AS);
+        return alias != null ? alias : processingEnv.getElementUtils().getBinaryName(type).toString();
+    }
+
+    private String annotationValue(Element element, String annotation) {
+        for (AnnotationMirror mirror : element.getAnnotationMirrors()) {
+            if (((TypeElement) mirror.getAnnotationType().asElement()).getQualifiedName().contentEquals(annotation)) {
+                for (Map.Entry<? extends ExecutableElement, ? extends AnnotationValue> entry : mirror.getElementValues().entrySet()) {
+                    if (entry.getKey().getSimpleName().contentEquals("value")) {
+                        return (String) entry.getValue().getValue();
+                    }
+                }
+                return null;
+            }
+        }
+        return null;
+    }
+
+    private static String escape(String value) {
+        return value.replace("\\", "\\\\").replace("\"", "\\\"");
+    }
+
+    private void writeServiceFile() {
+        try (PrintWriter writer = new PrintWriter(processingEnv.getFiler().createResource(StandardLocation.CLASS_OUTPUT, "", SERVICE_FILE).openWriter())) {
+            for (String name : generated) {
+                writer.println(name);
+            }
+        } catch (IOException e) {
+            processingEnv.getMessager().printMessage(Diagnostic.Kind.ERROR, "Could not write " + SERVICE_FILE + ": " + e.getMessage());
+        }
+    }
+}
@@ -0,0 +1,239 @@
+package com.stardevllc.config;
+
+import java.util.*;
+import java.util.function.BiConsumer;
+
+/*
+ * The entries of a section, kept in insertion order. Most sections only have a handful of keys, for those the keys and
+ * values sit in two small arrays that are searched from the start, which is quicker and far smaller than a LinkedHashMap
+ * with its table and an entry object per key. Past THRESHOLD keys the entries move to a LinkedHashMap for good.
+ */
+final class CompactSectionMap extends AbstractMap<String, SectionPathData> {
+    static final int THRESHOLD = 8;
+
+    private String[] keys;
+    private SectionPathData[] values;
+    private int size;
+    private LinkedHashMap<String, SectionPathData> large;
+    private int modCount;
+    private Set<Entry<String, SectionPathData>> entrySet;
+
+    CompactSectionMap() {
+        keys = new String[2];
+        values = new SectionPathData[2];
+    }
+
+    // Interned keys are usually the same instance, so that is checked before equals
+    private int indexOf(Object key) {
+        if (key == null) {
+            return -1;
+        }
+
+        String[] keys = this.keys;
+        int hash = key.hashCode();
+        for (int i = 0; i < size; i++) {
+            String current = keys[i];
+            if (current == key || (current.hashCode() == hash && current.equals(key))) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    @Override
+    public int size() {
+        return large != null ? large.size() : size;
+    }
+
+    @Override
+    public boolean isEmpty() {
+        return size() == 0;
+    }
+
+    @Override
+    public boolean containsKey(Object key) {
+        return large != null ? large.containsKey(key) : indexOf(key) >= 0;
+    }
+
+    @Override
+    public SectionPathData get(Object key) {
+        if (large != null) {
+            return large.get(key);
+        }
+
+        int index = indexOf(key);
+        return index >= 0 ? values[index] : null;
+    }
+
+    @Override
+    public SectionPathData put(String key, SectionPathData value) {
+        if (large != null) {
+            return large.put(key, value);
+        }
+
+        int index = indexOf(key);
+        if (index >= 0) {
+            SectionPathData old = values[index];
+            values[index] = value;
+            return old;
+        }
+
+        Objects.requireNonNull(key, "key");
+        if (size == THRESHOLD) {
+            large = new LinkedHashMap<>();
+            for (int i = 0; i < size; i++) {
+                large.put(keys[i], values[i]);
+            }
+            large.put(key, value);
+            keys = null;
+            values = null;
+            size = 0;
+            modCount++;
+            return null;
+        }
+
+        if (size == keys.length) {
+            keys = Arrays.copyOf(keys, Math.min(THRESHOLD, size * 2));
+            values = Arrays.copyOf(values, keys.length);
+        }
+        keys[size] = key;
+        values[size] = value;
+        size++;
+        modCount++;
+        return null;
+    }
+
+    @Override
+    public SectionPathData remove(Object key) {
+        if (large != null) {
+            return large.remove(key);
+        }
+
+        int index = indexOf(key);
+        if (index < 0) {
+            return null;
+        }
+
+        SectionPathData old = values[index];
+        removeAt(index);
+        return old;
+    }
+
+    private void removeAt(int index) {
+        int moved = size - index - 1;
+        System.arraycopy(keys, index + 1, keys, index, moved);
+        System.arraycopy(values, index + 1, values, index, moved);
+        size--;
+        keys[size] = null;
+        values[size] = null;
+        modCount++;
+    }
+
+    @Override
+    public void clear() {
+        if (large != null) {
+            large.clear();
+            return;
+        }
+
+        Arrays.fill(keys, 0, size, null);
+        Arrays.fill(values, 0, size, null);
+        size = 0;
+        modCount++;
+    }
+
+    // Walks the arrays directly, without an entry object per key
+    @Override
+    public void forEach(BiConsumer<? super String, ? super SectionPathData> action) {
+        if (large != null) {
+            large.forEach(action);
+            return;
+        }
+
+        int expectedModCount = modCount;
+        for (int i = 0; i < size; i++) {
+            action.accept(keys[i], values[i]);
+            if (modCount != expectedModCount || large != null) {
+                throw new ConcurrentModificationException();
+            }
+        }
+    }
+
+    @Override
+    public Set<Entry<String, SectionPathData>> entrySet() {
+        if (large != null) {
+            return large.entrySet();
+        }
+
+        Set<Entry<String, SectionPathData>> entrySet = this.entrySet;
+        if (entrySet == null) {
+            entrySet = new AbstractSet<>() {
+                @Override
+                public Iterator<Entry<String, SectionPathData>> iterator() {
+                    return large != null ? large.entrySet().iterator() : new EntryIterator();
+                }
+
+                @Override
+                public int size() {
+                    return CompactSectionMap.this.size();
+                }
+
+                @Override
+                public void clear() {
+                    CompactSectionMap.this.clear();
+                }
+            };
+            this.entrySet = entrySet;
+        }
+        return entrySet;
+    }
+
+    private final class EntryIterator implements Iterator<Entry<String, SectionPathData>> {
+        private int next;
+        private int last = -1;
+        private int expectedModCount = modCount;
+
+        @Override
+        public boolean hasNext() {
+            return next < size;
+        }
+
+        @Override
+        public Entry<String, SectionPathData> next() {
+            if (modCount != expectedModCount || large != null) {
+                throw new ConcurrentModificationException();
+            }
+            if (next >= size) {
+                throw new NoSuchElementException();
+            }
+
+            last = next++;
+            int index = last;
+            return new SimpleEntry<>(keys[index], values[index]) {
+                @Override
+                public SectionPathData setValue(SectionPathData value) {
+                    if (modCount != expectedModCount) {
+                        throw new ConcurrentModificationException();
+                    }
+                    values[index] = value;
+                    return super.setValue(value);
+                }
+            };
+        }
+
+        @Override
+        public void remove() {
+            if (last < 0) {
+                throw new IllegalStateException();
+            }
+            if (modCount != expectedModCount) {
+                throw new ConcurrentModificationException();
+            }
+
+            removeAt(last);
+            next = last;
+            last = -1;
+            expectedModCount = modCount;
+        }
+    }
+}
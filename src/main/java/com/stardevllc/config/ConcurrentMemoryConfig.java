@@ -0,0 +1,148 @@
+package com.stardevllc.config;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/*
+ * A MemoryConfig that can be read from any thread while other threads write to it.
+ * Reads never lock, writes lock the section that is being changed and keep the insertion order used for saving.
+ */
+public class ConcurrentMemoryConfig extends MemoryConfig {
+    // Taken by writers of the root section, the config itself is the monitor of the index hooks and of rebuilding the index
+    private final Object lock = new Object();
+
+    public ConcurrentMemoryConfig() {
+        this(null);
+    }
+
+    public ConcurrentMemoryConfig(Config defaults) {
+        super(defaults, new ConcurrentSectionMap());
+    }
+
+    @Override
+    protected Map<String, SectionPathData> createMap() {
+        return new ConcurrentSectionMap();
+    }
+
+    @Override
+    protected MemorySection createChildSection(MemorySection parent, String key) {
+        return new ConcurrentMemorySection(parent, key);
+    }
+
+    @Override
+    protected Map<String, SectionPathData> createPathIndex() {
+        return new ConcurrentHashMap<>();
+    }
+
+    @Override
+    protected MemorySection getEntrySection(String key, boolean create) {
+        MemorySection section = super.getEntrySection(key, false);
+        if (section != null || !create) {
+            return section;
+        }
+
+        beginWrite();
+        try {
+            synchronized (lock) {
+                return super.getEntrySection(key, true);
+            }
+        } finally {
+            endWrite();
+        }
+    }
+
+    @Override
+    protected void setEntry(String key, Object value) {
+        replaceEntry(this, lock, key, value);
+    }
+
+    @Override
+    protected MemorySection createEntrySection(String key) {
+        beginWrite();
+        try {
+            synchronized (lock) {
+                return super.createEntrySection(key);
+            }
+        } finally {
+            endWrite();
+        }
+    }
+
+    @Override
+    protected void clearEntries() {
+        beginWrite();
+        try {
+            synchronized (lock) {
+                super.clearEntries();
+            }
+        } finally {
+            endWrite();
+        }
+    }
+
+    // The swap and the index rebuild that follows it happen as one, so no write lands in between and gets lost
+    @Override
+    protected void swapEntries(Map<String, SectionPathData> entries) {
+        beginWrite();
+        try {
+            synchronized (lock) {
+                synchronized (this) {
+                    super.swapEntries(entries);
+                }
+            }
+        } finally {
+            endWrite();
+        }
+    }
+
+    @Override
+    protected synchronized void rebuildPathIndex() {
+        super.rebuildPathIndex();
+    }
+
+    @Override
+    protected synchronized void onEntryAdded(MemorySection section, String key, SectionPathData entry) {
+        super.onEntryAdded(section, key, entry);
+    }
+
+    @Override
+    protected synchronized void onEntryRemoved(MemorySection section, String key, SectionPathData entry) {
+        super.onEntryRemoved(section, key, entry);
+    }
+
+    @Override
+    protected synchronized void onEntryChanged(MemorySection section, String key, SectionPathData entry, Object oldData) {
+        super.onEntryChanged(section, key, entry, oldData);
+    }
+
+    // Entries are replaced instead of updated in place so that readers never see a half written value
+    static void replaceEntry(MemorySection section, Object lock, String key, Object value) {
+        MemoryConfig config = (MemoryConfig) section.getRoot();
+        key = config.internKey(key);
+        value = config.internValue(value);
+        section.beginWrite();
+        try {
+            synchronized (lock) {
+                if (value == null) {
+                    SectionPathData removed = section.map.remove(key);
+                    if (removed != null) {
+                        config.onEntryRemoved(section, key, removed);
+                    }
+                    return;
+                }
+
+                SectionPathData entry = new SectionPathData(value);
+                SectionPathData old = section.map.put(key, entry);
+                if (old == null) {
+                    config.onEntryAdded(section, key, entry);
+                } else {
+                    entry.setComments(old.getComments());
+                    entry.setInlineComments(old.getInlineComments());
+                    config.onEntryChanged(section, key, entry, old.getData());
+                }
+            }
+        } finally {
+            section.endWrite();
+        }
+    }
+}
@@ -0,0 +1,70 @@
+package com.stardevllc.config;
+
+import java.util.Map;
+
+public class ConcurrentMemorySection extends MemorySection {
+    // The entry map itself is swapped when the section is reloaded, so writers lock this instead
+    final Object lock = new Object();
+
+    protected ConcurrentMemorySection(Section parent, String path) {
+        super(parent, path);
+    }
+
+    @Override
+    protected MemorySection getEntrySection(String key, boolean create) {
+        MemorySection section = super.getEntrySection(key, false);
+        if (section != null || !create) {
+            return section;
+        }
+
+        beginWrite();
+        try {
+            synchronized (lock) {
+                return super.getEntrySection(key, true);
+            }
+        } finally {
+            endWrite();
+        }
+    }
+
+    @Override
+    protected void setEntry(String key, Object value) {
+        ConcurrentMemoryConfig.replaceEntry(this, lock, key, value);
+    }
+
+    @Override
+    protected MemorySection createEntrySection(String key) {
+        beginWrite();
+        try {
+            synchronized (lock) {
+                return super.createEntrySection(key);
+            }
+        } finally {
+            endWrite();
+        }
+    }
+
+    @Override
+    protected void clearEntries() {
+        beginWrite();
+        try {
+            synchronized (lock) {
+                super.clearEntries();
+            }
+        } finally {
+            endWrite();
+        }
+    }
+
+    @Override
+    protected void swapEntries(Map<String, SectionPathData> entries) {
+        beginWrite();
+        try {
+            synchronized (lock) {
+                super.swapEntries(entries);
+            }
+        } finally {
+            endWrite();
+        }
+    }
+}
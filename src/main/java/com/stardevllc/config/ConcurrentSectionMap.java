@@ -0,0 +1,164 @@
+package com.stardevllc.config;
+
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+
+/*
+ * Insertion ordered map used by ConcurrentMemoryConfig. Reads go straight to a ConcurrentHashMap and iteration walks
+ * a linked list of nodes without locking, writes are serialized on the map itself.
+ * Removed nodes keep their next pointer so an iterator sitting on one can still reach the rest of the list.
+ */
+final class ConcurrentSectionMap extends AbstractMap<String, SectionPathData> {
+    private final ConcurrentHashMap<String, Node> nodes = new ConcurrentHashMap<>();
+    private final Node head = new Node(null, null);
+    private Node tail = head;
+    private Set<Map.Entry<String, SectionPathData>> entrySet;
+
+    @Override
+    public SectionPathData get(Object key) {
+        Node node = nodes.get(key);
+        return node == null ? null : node.value;
+    }
+
+    @Override
+    public boolean containsKey(Object key) {
+        return nodes.containsKey(key);
+    }
+
+    @Override
+    public int size() {
+        return nodes.size();
+    }
+
+    @Override
+    public boolean isEmpty() {
+        return nodes.isEmpty();
+    }
+
+    @Override
+    public synchronized SectionPathData put(String key, SectionPathData value) {
+        Node node = nodes.get(key);
+        if (node != null) {
+            SectionPathData old = node.value;
+            node.value = value;
+            return old;
+        }
+
+        node = new Node(key, value);
+        node.prev = tail;
+        tail.next = node;
+        tail = node;
+        nodes.put(key, node);
+        return null;
+    }
+
+    @Override
+    public synchronized SectionPathData remove(Object key) {
+        Node node = nodes.remove(key);
+        if (node == null) {
+            return null;
+        }
+
+        node.removed = true;
+        node.prev.next = node.next;
+        if (node.next == null) {
+            tail = node.prev;
+        } else {
+            node.next.prev = node.prev;
+        }
+        return node.value;
+    }
+
+    @Override
+    public synchronized void clear() {
+        for (Node node = head.next; node != null; node = node.next) {
+            node.removed = true;
+        }
+        nodes.clear();
+        head.next = null;
+        tail = head;
+    }
+
+    @Override
+    public Set<Map.Entry<String, SectionPathData>> entrySet() {
+        if (entrySet == null) {
+            entrySet = new AbstractSet<>() {
+                @Override
+                public Iterator<Map.Entry<String, SectionPathData>> iterator() {
+                    return new NodeIterator();
+                }
+
+                @Override
+                public int size() {
+                    return nodes.size();
+                }
+            };
+        }
+        return entrySet;
+    }
+
+    private final class NodeIterator implements Iterator<Map.Entry<String, SectionPathData>> {
+        private Node next = advance(head);
+        private Node last;
+
+        private Node advance(Node node) {
+            node = node.next;
+            while (node != null && node.removed) {
+                node = node.next;
+            }
+            return node;
+        }
+
+        @Override
+        public boolean hasNext() {
+            return next != null;
+        }
+
+        @Override
+        public Map.Entry<String, SectionPathData> next() {
+            if (next == null) {
+                throw new NoSuchElementException();
+            }
+            last = next;
+            next = advance(next);
+            return last;
+        }
+
+        @Override
+        public void remove() {
+            if (last == null) {
+                throw new IllegalStateException();
+            }
+            ConcurrentSectionMap.this.remove(last.key);
+            last = null;
+        }
+    }
+
+    private static final class Node implements Map.Entry<String, SectionPathData> {
+        private final String key;
+        private volatile SectionPathData value;
+        private volatile Node next;
+        private Node prev;
+        private volatile boolean removed;
+
+        private Node(String key, SectionPathData value) {
+            this.key = key;
+            this.value = value;
+        }
+
+        @Override
+        public String getKey() {
+            return key;
+        }
+
+        @Override
+        public SectionPathData getValue() {
+            return value;
+        }
+
+        @Override
+        public SectionPathData setValue(SectionPathData value) {
+            throw new UnsupportedOperationException();
+        }
+    }
+}
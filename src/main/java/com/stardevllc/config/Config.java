@@ -12,6 +12,16 @@ public interface Config extends Section {
     Config getDefaults();
     
     Options options();
+    
+    // Listens to changes at the path and everything below it, an empty path listens to the whole config. Configs that do
+    // not report changes throw UnsupportedOperationException
+    default void subscribe(String path, ConfigListener listener) {
+        throw new UnsupportedOperationException(getClass().getName() + " does not report changes");
+    }
+    
+    default void unsubscribe(String path, ConfigListener listener) {
+        throw new UnsupportedOperationException(getClass().getName() + " does not report changes");
+    }
 
     class Options {
         private char pathSeparator = '.';
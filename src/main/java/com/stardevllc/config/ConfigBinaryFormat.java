@@ -0,0 +1,289 @@
+package com.stardevllc.config;
+
+import com.stardevllc.config.serialization.ConfigSerializable;
+import com.stardevllc.config.serialization.ConfigSerialization;
+
+import java.io.DataOutput;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.*;
+
+/**
+ * A compact binary encoding of a section's entries, comments and nested sections, used to cache parsed configs.
+ * <p>
+ * Only the value types a config file can produce are supported, writing anything else throws an
+ * {@link UnsupportedOperationException}. Serializable objects are stored by their alias and serialized values, so they
+ * are deserialized again on read.
+ * <p>
+ * Reads check every length against the bytes left in the buffer, so damaged data fails with an {@link IOException}
+ * instead of allocating whatever size it claims.
+ */
+public final class ConfigBinaryFormat {
+    private static final byte NULL = 0;
+    private static final byte STRING = 1;
+    private static final byte INT = 2;
+    private static final byte LONG = 3;
+    private static final byte DOUBLE = 4;
+    private static final byte BOOLEAN = 5;
+    private static final byte INT_ARRAY = 6;
+    private static final byte LONG_ARRAY = 7;
+    private static final byte DOUBLE_ARRAY = 8;
+    private static final byte LIST = 9;
+    private static final byte MAP = 10;
+    private static final byte SECTION = 11;
+    private static final byte SERIALIZABLE = 12;
+    // An array stored as a list, see SectionPathData.asList
+    private static final byte ARRAY_LIST = 13;
+
+    private ConfigBinaryFormat() {
+    }
+
+    public static void writeSection(MemorySection section, DataOutput out) throws IOException {
+        Map<String, SectionPathData> map = section.map;
+        out.writeInt(map.size());
+        for (Map.Entry<String, SectionPathData> entry : map.entrySet()) {
+            SectionPathData data = entry.getValue();
+            writeString(entry.getKey(), out);
+            writeStrings(data.getComments(), out);
+            writeStrings(data.getInlineComments(), out);
+
+            switch (data.getType()) {
+                case SectionPathData.INT -> {
+                    out.writeByte(INT);
+                    out.writeInt(data.getInt());
+                }
+                case SectionPathData.LONG -> {
+                    out.writeByte(LONG);
+                    out.writeLong(data.getLong());
+                }
+                case SectionPathData.DOUBLE -> {
+                    out.writeByte(DOUBLE);
+                    out.writeDouble(data.getDouble());
+                }
+                case SectionPathData.BOOLEAN -> {
+                    out.writeByte(BOOLEAN);
+                    out.writeBoolean(data.getBoolean());
+                }
+                case SectionPathData.ARRAY -> {
+                    out.writeByte(ARRAY_LIST);
+                    writeValue(data.getArray(), out);
+                }
+                default -> {
+                    if (data.getData() instanceof MemorySection child) {
+                        out.writeByte(SECTION);
+                        writeSection(child, out);
+                    } else {
+                        writeValue(data.getData(), out);
+                    }
+                }
+            }
+        }
+    }
+
+    public static void readSection(ByteBuffer in, Section section) throws IOException {
+        int size = readLength(in, 1);
+        for (int i = 0; i < size; i++) {
+            String key = readString(in);
+            List<String> comments = readStrings(in);
+            List<String> inlineComments = readStrings(in);
+
+            byte tag = in.get();
+            if (tag == SECTION) {
+                readSection(in, section.createSection(key));
+            } else {
+                section.set(key, readValue(tag, in));
+            }
+
+            if (!comments.isEmpty()) {
+                section.setComments(key, comments);
+            }
+            if (!inlineComments.isEmpty()) {
+                section.setInlineComments(key, inlineComments);
+            }
+        }
+    }
+
+    private static void writeValue(Object value, DataOutput out) throws IOException {
+        if (value == null) {
+            out.writeByte(NULL);
+        } else if (value instanceof String string) {
+            out.writeByte(STRING);
+            writeString(string, out);
+        } else if (value instanceof Integer number) {
+            out.writeByte(INT);
+            out.writeInt(number);
+        } else if (value instanceof Long number) {
+            out.writeByte(LONG);
+            out.writeLong(number);
+        } else if (value instanceof Double number) {
+            out.writeByte(DOUBLE);
+            out.writeDouble(number);
+        } else if (value instanceof Boolean bool) {
+            out.writeByte(BOOLEAN);
+            out.writeBoolean(bool);
+        } else if (value instanceof int[] values) {
+            out.writeByte(INT_ARRAY);
+            out.writeInt(values.length);
+            for (int element : values) {
+                out.writeInt(element);
+            }
+        } else if (value instanceof long[] values) {
+            out.writeByte(LONG_ARRAY);
+            out.writeInt(values.length);
+            for (long element : values) {
+                out.writeLong(element);
+            }
+        } else if (value instanceof double[] values) {
+            out.writeByte(DOUBLE_ARRAY);
+            out.writeInt(values.length);
+            for (double element : values) {
+                out.writeDouble(element);
+            }
+        } else if (value instanceof List<?> list) {
+            out.writeByte(LIST);
+            out.writeInt(list.size());
+            for (Object element : list) {
+                writeValue(element, out);
+            }
+        } else if (value instanceof Map<?, ?> map) {
+            out.writeByte(MAP);
+            writeMap(map, out);
+        } else if (value instanceof ConfigSerializable serializable) {
+            out.writeByte(SERIALIZABLE);
+            writeString(ConfigSerialization.getAlias(serializable.getClass()), out);
+            writeMap(ConfigSerialization.serialize(serializable), out);
+        } else {
+            throw new UnsupportedOperationException("Cannot encode values of type " + value.getClass().getName());
+        }
+    }
+
+    private static void writeMap(Map<?, ?> map, DataOutput out) throws IOException {
+        out.writeInt(map.size());
+        for (Map.Entry<?, ?> entry : map.entrySet()) {
+            writeValue(entry.getKey(), out);
+            writeValue(entry.getValue(), out);
+        }
+    }
+
+    private static Object readValue(byte tag, ByteBuffer in) throws IOException {
+        return switch (tag) {
+            case NULL -> null;
+            case STRING -> readString(in);
+            case INT -> in.getInt();
+            case LONG -> in.getLong();
+            case DOUBLE -> in.getDouble();
+            case BOOLEAN -> in.get() != 0;
+            case INT_ARRAY -> {
+                int[] values = new int[readLength(in, Integer.BYTES)];
+                in.asIntBuffer().get(values);
+                in.position(in.position() + values.length * Integer.BYTES);
+                yield values;
+            }
+            case LONG_ARRAY -> {
+                long[] values = new long[readLength(in, Long.BYTES)];
+                in.asLongBuffer().get(values);
+                in.position(in.position() + values.length * Long.BYTES);
+                yield values;
+            }
+            case DOUBLE_ARRAY -> {
+                double[] values = new double[readLength(in, Double.BYTES)];
+                in.asDoubleBuffer().get(values);
+                in.position(in.position() + values.length * Double.BYTES);
+                yield values;
+            }
+            case LIST -> {
+                int size = readLength(in, 1);
+                List<Object> values = new ArrayList<>(size);
+                for (int i = 0; i < size; i++) {
+                    values.add(readValue(in.get(), in));
+                }
+                yield values;
+            }
+            case MAP -> readMap(in);
+            case ARRAY_LIST -> SectionPathData.asList(readValue(in.get(), in));
+            case SERIALIZABLE -> {
+                String alias = readString(in);
+                Map<String, Object> values = new LinkedHashMap<>();
+                values.put(ConfigSerialization.SERIALIZED_TYPE_KEY, alias);
+                for (Map.Entry<Object, Object> entry : readMap(in).entrySet()) {
+                    values.put(String.valueOf(entry.getKey()), entry.getValue());
+                }
+                // Setting null would quietly drop the entry, so a type that can no longer be read fails the whole read
+                ConfigSerializable value = ConfigSerialization.deserializeObject(values);
+                if (value == null) {
+                    throw new IOException("Could not deserialize an object of type " + alias);
+                }
+                yield value;
+            }
+            default -> throw new IOException("Unknown value tag " + tag);
+        };
+    }
+
+    // The length of something made of elements at least elementSize bytes long, which all have to be in the buffer still
+    private static int readLength(ByteBuffer in, int elementSize) throws IOException {
+        return checkLength(in.getInt(), in, elementSize);
+    }
+
+    private static int checkLength(int length, ByteBuffer in, int elementSize) throws IOException {
+        if (length < 0 || length > in.remaining() / elementSize) {
+            throw new IOException("Invalid length " + length + " with " + in.remaining() + " bytes left");
+        }
+        return length;
+    }
+
+    private static Map<Object, Object> readMap(ByteBuffer in) throws IOException {
+        // Every entry is at least a key and a value tag
+        int size = readLength(in, 2);
+        Map<Object, Object> values = new LinkedHashMap<>();
+        for (int i = 0; i < size; i++) {
+            Object key = readValue(in.get(), in);
+            values.put(key, readValue(in.get(), in));
+        }
+        return values;
+    }
+
+    // DataOutput.writeUTF stops at 64KB, so strings are written as their length and UTF-8 bytes. Comment lists use null for blank lines
+    private static void writeString(String value, DataOutput out) throws IOException {
+        if (value == null) {
+            out.writeInt(-1);
+            return;
+        }
+
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        out.writeInt(bytes.length);
+        out.write(bytes);
+    }
+
+    private static String readString(ByteBuffer in) throws IOException {
+        int length = in.getInt();
+        if (length == -1) {
+            return null;
+        }
+
+        byte[] bytes = new byte[checkLength(length, in, 1)];
+        in.get(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    public static void writeStrings(List<String> values, DataOutput out) throws IOException {
+        out.writeInt(values.size());
+        for (String value : values) {
+            writeString(value, out);
+        }
+    }
+
+    public static List<String> readStrings(ByteBuffer in) throws IOException {
+        // Even a null string takes the four bytes of its length
+        int size = readLength(in, Integer.BYTES);
+        if (size == 0) {
+            return Collections.emptyList();
+        }
+
+        List<String> values = new ArrayList<>(size);
+        for (int i = 0; i < size; i++) {
+            values.add(readString(in));
+        }
+        return values;
+    }
+}
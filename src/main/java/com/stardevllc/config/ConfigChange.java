@@ -0,0 +1,64 @@
+package com.stardevllc.config;
+
+import java.util.Objects;
+
+/**
+ * A single difference between two {@link ConfigSnapshot}s, see {@link ConfigSnapshot#diff(ConfigSnapshot)}.
+ */
+public final class ConfigChange {
+
+    public enum Type {
+        ADDED, REMOVED, CHANGED
+    }
+
+    private final Type type;
+    private final String path;
+    private final Object oldValue;
+    private final Object newValue;
+
+    public ConfigChange(Type type, String path, Object oldValue, Object newValue) {
+        this.type = type;
+        this.path = path;
+        this.oldValue = oldValue;
+        this.newValue = newValue;
+    }
+
+    public Type getType() {
+        return type;
+    }
+
+    public String getPath() {
+        return path;
+    }
+
+    // Null for added paths
+    public Object getOldValue() {
+        return oldValue;
+    }
+
+    // Null for removed paths
+    public Object getNewValue() {
+        return newValue;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) {
+            return true;
+        }
+        if (!(o instanceof ConfigChange other)) {
+            return false;
+        }
+        return type == other.type && path.equals(other.path) && Objects.equals(oldValue, other.oldValue) && Objects.equals(newValue, other.newValue);
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(type, path, oldValue, newValue);
+    }
+
+    @Override
+    public String toString() {
+        return type + " " + path;
+    }
+}
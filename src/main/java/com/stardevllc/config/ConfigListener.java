@@ -0,0 +1,14 @@
+package com.stardevllc.config;
+
+import java.util.List;
+
+/**
+ * Receives the changes made under a path passed to {@link Config#subscribe(String, ConfigListener)}.
+ * <p>
+ * Listeners are called on the thread that made the change, right after it and once the locks taken for it are released.
+ * Changes made inside a batch, like a load, are delivered together once that thread ends it.
+ */
+@FunctionalInterface
+public interface ConfigListener {
+    void onChange(List<ConfigChange> changes);
+}
@@ -0,0 +1,119 @@
+package com.stardevllc.config;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * A path that has been split into its keys ahead of time so that it can be reused for lookups without re-parsing.
+ * <p>
+ * Compile paths once (usually into a static field) and pass them to the {@link Section} overloads that take a {@code ConfigPath}.
+ */
+public final class ConfigPath {
+    private static final String[] NO_KEYS = new String[0];
+
+    private final String path;
+    private final char separator;
+    private final String[] keys;
+    private final int hash;
+
+    private ConfigPath(String path, char separator, String[] keys) {
+        this.path = path;
+        this.separator = separator;
+        this.keys = keys;
+
+        int hash = 1;
+        for (String key : keys) {
+            // Computing the hash here caches it in the String so that map lookups do not have to
+            hash = 31 * hash + key.hashCode();
+        }
+        this.hash = hash;
+    }
+
+    public static ConfigPath of(String path) {
+        return of(path, '.');
+    }
+
+    public static ConfigPath of(Config config, String path) {
+        return of(path, config.options().pathSeparator());
+    }
+
+    public static ConfigPath of(String path, char separator) {
+        if (path == null) {
+            throw new IllegalArgumentException("Path cannot be null");
+        }
+
+        if (path.isEmpty()) {
+            return new ConfigPath(path, separator, NO_KEYS);
+        }
+
+        List<String> keys = new ArrayList<>();
+        int i1 = -1, i2;
+        while ((i1 = path.indexOf(separator, i2 = i1 + 1)) != -1) {
+            keys.add(path.substring(i2, i1));
+        }
+        keys.add(path.substring(i2));
+
+        return new ConfigPath(path, separator, keys.toArray(NO_KEYS));
+    }
+
+    public String path() {
+        return path;
+    }
+
+    public char separator() {
+        return separator;
+    }
+
+    public int length() {
+        return keys.length;
+    }
+
+    public boolean isEmpty() {
+        return keys.length == 0;
+    }
+
+    public String key(int index) {
+        return keys[index];
+    }
+
+    public String lastKey() {
+        return keys.length == 0 ? "" : keys[keys.length - 1];
+    }
+
+    public ConfigPath child(String key) {
+        String[] childKeys = Arrays.copyOf(keys, keys.length + 1);
+        childKeys[keys.length] = key;
+        return new ConfigPath(path.isEmpty() ? key : path + separator + key, separator, childKeys);
+    }
+
+    public ConfigPath parent() {
+        if (keys.length <= 1) {
+            return new ConfigPath("", separator, NO_KEYS);
+        }
+
+        String[] parentKeys = Arrays.copyOf(keys, keys.length - 1);
+        return new ConfigPath(path.substring(0, path.length() - lastKey().length() - 1), separator, parentKeys);
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) {
+            return true;
+        }
+        if (!(o instanceof ConfigPath other)) {
+            return false;
+        }
+        return hash == other.hash && Arrays.equals(keys, other.keys);
+    }
+
+    @Override
+    public int hashCode() {
+        return hash;
+    }
+
+    @Override
+    public String toString() {
+        return path;
+    }
+}
@@ -0,0 +1,262 @@
+package com.stardevllc.config;
+
+import java.util.*;
+import java.util.function.Supplier;
+
+import static com.stardevllc.config.NumberConversions.*;
+
+/**
+ * An immutable copy of a section's values. Child sections are snapshots as well and unchanged ones are shared between
+ * the snapshots taken of a config over time, so taking a new snapshot after a change only copies the changed sections.
+ * Lists and maps in the section are copied as well, so changes made to them in place do not reach the snapshot.
+ */
+public final class ConfigSnapshot {
+    // The snapshot of a config that has not been loaded yet, without values the separator does not matter
+    public static final ConfigSnapshot EMPTY = new ConfigSnapshot(Map.of(), '.');
+
+    private volatile Map<String, Object> values;
+    // Produces the values of a snapshot taken of a lazy section before it was loaded, see LazySectionMap
+    private Supplier<Map<String, Object>> deferred;
+    private final char separator;
+
+    ConfigSnapshot(Map<String, Object> values, char separator) {
+        this.values = Collections.unmodifiableMap(values);
+        this.separator = separator;
+    }
+
+    ConfigSnapshot(Supplier<Map<String, Object>> deferred, char separator) {
+        this.deferred = deferred;
+        this.separator = separator;
+    }
+
+    private Map<String, Object> values() {
+        Map<String, Object> values = this.values;
+        if (values == null) {
+            synchronized (this) {
+                values = this.values;
+                if (values == null) {
+                    this.values = values = Collections.unmodifiableMap(deferred.get());
+                    deferred = null;
+                }
+            }
+        }
+        return values;
+    }
+
+    public char separator() {
+        return separator;
+    }
+
+    public Object get(String path) {
+        return get(path, null);
+    }
+
+    public Object get(String path, Object def) {
+        if (path.isEmpty()) {
+            return this;
+        }
+
+        // i1 is the leading (higher) index
+        // i2 is the trailing (lower) index
+        int i1 = -1, i2;
+        ConfigSnapshot section = this;
+        while ((i1 = path.indexOf(separator, i2 = i1 + 1)) != -1) {
+            if (!(section.values().get(path.substring(i2, i1)) instanceof ConfigSnapshot subSection)) {
+                return def;
+            }
+            section = subSection;
+        }
+
+        Object value = section.values().get(path.substring(i2));
+        return value == null ? def : value;
+    }
+
+    public Object get(ConfigPath path) {
+        return get(path, null);
+    }
+
+    public Object get(ConfigPath path, Object def) {
+        if (path.isEmpty()) {
+            return this;
+        }
+
+        ConfigSnapshot section = this;
+        int last = path.length() - 1;
+        for (int i = 0; i < last; i++) {
+            if (!(section.values().get(path.key(i)) instanceof ConfigSnapshot subSection)) {
+                return def;
+            }
+            section = subSection;
+        }
+
+        Object value = section.values().get(path.key(last));
+        return value == null ? def : value;
+    }
+
+    public boolean contains(String path) {
+        return get(path) != null;
+    }
+
+    public String getString(String path) {
+        return getString(path, null);
+    }
+
+    public String getString(String path, String def) {
+        Object val = get(path);
+        return val != null ? val.toString() : def;
+    }
+
+    public int getInt(String path) {
+        return getInt(path, 0);
+    }
+
+    public int getInt(String path, int def) {
+        Object val = get(path);
+        return val instanceof Number ? toInt(val) : def;
+    }
+
+    public long getLong(String path) {
+        return getLong(path, 0);
+    }
+
+    public long getLong(String path, long def) {
+        Object val = get(path);
+        return val instanceof Number ? toLong(val) : def;
+    }
+
+    public double getDouble(String path) {
+        return getDouble(path, 0);
+    }
+
+    public double getDouble(String path, double def) {
+        Object val = get(path);
+        return val instanceof Number ? toDouble(val) : def;
+    }
+
+    public boolean getBoolean(String path) {
+        return getBoolean(path, false);
+    }
+
+    public boolean getBoolean(String path, boolean def) {
+        Object val = get(path);
+        return val instanceof Boolean ? (Boolean) val : def;
+    }
+
+    public List<?> getList(String path) {
+        Object val = get(path);
+        return val instanceof List ? (List<?>) val : null;
+    }
+
+    public ConfigSnapshot getSection(String path) {
+        Object val = get(path);
+        return val instanceof ConfigSnapshot ? (ConfigSnapshot) val : null;
+    }
+
+    public boolean isSection(String path) {
+        return get(path) instanceof ConfigSnapshot;
+    }
+
+    public Set<String> getKeys(boolean deep) {
+        if (!deep) {
+            return values().keySet();
+        }
+
+        Set<String> result = new LinkedHashSet<>();
+        mapChildrenKeys(result, this, "");
+        return result;
+    }
+
+    public Map<String, Object> getValues(boolean deep) {
+        if (!deep) {
+            return values();
+        }
+
+        Map<String, Object> result = new LinkedHashMap<>();
+        mapChildrenValues(result, this, "");
+        return result;
+    }
+
+    // Lists every path that differs from this snapshot to the newer one. Sections shared by both are skipped without looking inside
+    public List<ConfigChange> diff(ConfigSnapshot newer) {
+        return diff(newer, "");
+    }
+
+    List<ConfigChange> diff(ConfigSnapshot newer, String prefix) {
+        List<ConfigChange> changes = new ArrayList<>();
+        diff(changes, this, newer, prefix);
+        return changes;
+    }
+
+    private void diff(List<ConfigChange> output, ConfigSnapshot older, ConfigSnapshot newer, String prefix) {
+        if (older == newer) {
+            return;
+        }
+
+        for (Map.Entry<String, Object> entry : older.values().entrySet()) {
+            String path = prefix.isEmpty() ? entry.getKey() : prefix + separator + entry.getKey();
+            Object oldValue = entry.getValue();
+            Object newValue = newer.values().get(entry.getKey());
+            if (newValue == null) {
+                output.add(new ConfigChange(ConfigChange.Type.REMOVED, path, oldValue, null));
+                if (oldValue instanceof ConfigSnapshot oldSection) {
+                    addChildren(output, ConfigChange.Type.REMOVED, oldSection, path);
+                }
+            } else if (oldValue instanceof ConfigSnapshot oldSection && newValue instanceof ConfigSnapshot newSection) {
+                diff(output, oldSection, newSection, path);
+            } else if (!oldValue.equals(newValue)) {
+                output.add(new ConfigChange(ConfigChange.Type.CHANGED, path, oldValue, newValue));
+                if (oldValue instanceof ConfigSnapshot oldSection) {
+                    addChildren(output, ConfigChange.Type.REMOVED, oldSection, path);
+                } else if (newValue instanceof ConfigSnapshot newSection) {
+                    addChildren(output, ConfigChange.Type.ADDED, newSection, path);
+                }
+            }
+        }
+
+        for (Map.Entry<String, Object> entry : newer.values().entrySet()) {
+            if (!older.values().containsKey(entry.getKey())) {
+                String path = prefix.isEmpty() ? entry.getKey() : prefix + separator + entry.getKey();
+                output.add(new ConfigChange(ConfigChange.Type.ADDED, path, null, entry.getValue()));
+                if (entry.getValue() instanceof ConfigSnapshot newSection) {
+                    addChildren(output, ConfigChange.Type.ADDED, newSection, path);
+                }
+            }
+        }
+    }
+
+    private void addChildren(List<ConfigChange> output, ConfigChange.Type type, ConfigSnapshot section, String prefix) {
+        for (Map.Entry<String, Object> entry : section.values().entrySet()) {
+            String path = prefix + separator + entry.getKey();
+            Object value = entry.getValue();
+            output.add(type == ConfigChange.Type.ADDED ? new ConfigChange(type, path, null, value) : new ConfigChange(type, path, value, null));
+            if (value instanceof ConfigSnapshot subSection) {
+                addChildren(output, type, subSection, path);
+            }
+        }
+    }
+
+    private void mapChildrenKeys(Set<String> output, ConfigSnapshot section, String prefix) {
+        for (Map.Entry<String, Object> entry : section.values().entrySet()) {
+            String path = prefix.isEmpty() ? entry.getKey() : prefix + separator + entry.getKey();
+            output.add(path);
+            if (entry.getValue() instanceof ConfigSnapshot subSection) {
+                mapChildrenKeys(output, subSection, path);
+            }
+        }
+    }
+
+    private void mapChildrenValues(Map<String, Object> output, ConfigSnapshot section, String prefix) {
+        for (Map.Entry<String, Object> entry : section.values().entrySet()) {
+            String path = prefix.isEmpty() ? entry.getKey() : prefix + separator + entry.getKey();
+            output.put(path, entry.getValue());
+            if (entry.getValue() instanceof ConfigSnapshot subSection) {
+                mapChildrenValues(output, subSection, path);
+            }
+        }
+    }
+
+    @Override
+    public String toString() {
+        return "ConfigSnapshot" + values();
+    }
+}
@@ -0,0 +1,14 @@
+package com.stardevllc.config;
+
+/**
+ * Receives the entries of a section from {@link Section#walk(ConfigVisitor)}, in order and with a section before its own
+ * entries.
+ * <p>
+ * The path is relative to the walked section and the buffer behind it is reused for the next entry, so it is only valid
+ * during the call, {@code toString()} it to keep it. The depth is 0 for the entries of the walked section itself.
+ */
+@FunctionalInterface
+public interface ConfigVisitor {
+    // Returning false skips the entries of a section, it is ignored for other values
+    boolean visit(CharSequence path, int depth, Object value);
+}
@@ -0,0 +1,86 @@
+package com.stardevllc.config;
+
+import java.lang.ref.WeakReference;
+import java.util.WeakHashMap;
+
+/**
+ * Shares equal strings between configs, see {@link MemoryConfig.Options#interner(Interner)}.
+ * <p>
+ * Many configs of the same shape (one per player for example) hold their own copies of the same keys and short values.
+ * Giving them the same interner keeps a single copy of each. A {@link #weak() weak} interner keeps every string that is
+ * still used somewhere, a {@link #bounded(int) bounded} one is a fixed size table where a newer string can take the slot
+ * of an older one, so it never grows but may miss.
+ */
+public abstract class Interner {
+    private static final class SharedHolder {
+        private static final Interner SHARED = weak();
+    }
+
+    public static Interner weak() {
+        return new Weak();
+    }
+
+    public static Interner bounded(int size) {
+        if (size <= 0) {
+            throw new IllegalArgumentException("Size must be positive");
+        }
+        return new Bounded(size);
+    }
+
+    // A weak interner for the whole library, for configs that are not known to each other
+    public static Interner shared() {
+        return SharedHolder.SHARED;
+    }
+
+    public abstract String intern(String value);
+
+    private static final class Weak extends Interner {
+        // Striped so configs loaded in parallel do not all wait on one lock
+        private final Stripe[] stripes = new Stripe[16];
+
+        private Weak() {
+            for (int i = 0; i < stripes.length; i++) {
+                stripes[i] = new Stripe();
+            }
+        }
+
+        @Override
+        public String intern(String value) {
+            int hash = value.hashCode();
+            Stripe stripe = stripes[(hash ^ (hash >>> 16)) & (stripes.length - 1)];
+            synchronized (stripe) {
+                WeakReference<String> reference = stripe.get(value);
+                String interned = reference != null ? reference.get() : null;
+                if (interned != null) {
+                    return interned;
+                }
+                stripe.put(value, new WeakReference<>(value));
+                return value;
+            }
+        }
+
+        private static final class Stripe extends WeakHashMap<String, WeakReference<String>> {
+        }
+    }
+
+    private static final class Bounded extends Interner {
+        // Strings are immutable, so racing writes to a slot are harmless, at worst a string is not shared
+        private final String[] table;
+
+        private Bounded(int size) {
+            table = new String[Integer.highestOneBit(Math.max(1, size - 1)) << 1];
+        }
+
+        @Override
+        public String intern(String value) {
+            int hash = value.hashCode();
+            int index = (hash ^ (hash >>> 16)) & (table.length - 1);
+            String interned = table[index];
+            if (value.equals(interned)) {
+                return interned;
+            }
+            table[index] = value;
+            return value;
+        }
+    }
+}
@@ -0,0 +1,132 @@
+package com.stardevllc.config;
+
+import java.util.AbstractMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.BiConsumer;
+import java.util.function.Consumer;
+
+/*
+ * Stands in for the entries of a section until something first touches them, then runs the loader to fill the real map
+ * and puts that into the section. Entries created by the loader are not reported as changes.
+ */
+final class LazySectionMap extends AbstractMap<String, SectionPathData> {
+    private final MemorySection section;
+    private final MemoryConfig config;
+    private final Map<String, SectionPathData> target;
+    private Consumer<Section> loader;
+    private volatile boolean loaded;
+    // Set once a snapshot was taken before loading, the values are then kept as the loader left them for that snapshot
+    private boolean snapshotted;
+    private Map<String, Object> loadedValues;
+
+    LazySectionMap(MemorySection section, MemoryConfig config, Map<String, SectionPathData> target, Consumer<Section> loader) {
+        this.section = section;
+        this.config = config;
+        this.target = target;
+        this.loader = loader;
+    }
+
+    private Map<String, SectionPathData> entries() {
+        if (!loaded) {
+            load();
+        }
+        return target;
+    }
+
+    private synchronized void load() {
+        // Null once loaded, or while the loader itself is filling the map on this thread
+        Consumer<Section> loader = this.loader;
+        if (loader == null) {
+            return;
+        }
+
+        this.loader = null;
+        MemoryConfig previous = config.beginMaterialize();
+        try {
+            loader.accept(section);
+            // Nobody can change the entries before this returns, every write waits for the load first
+            if (snapshotted) {
+                loadedValues = MemorySection.snapshotValues(target);
+            }
+        } catch (RuntimeException | Error e) {
+            // Half of a section must never be seen or saved, so drop what was filled in and fail the same way next time
+            target.clear();
+            this.loader = loader;
+            throw e;
+        } finally {
+            MemoryConfig.endMaterialize(previous);
+        }
+        loaded = true;
+
+        if (section.map == this) {
+            section.map = target;
+        }
+    }
+
+    // Null if the section is loaded already, its entries can be copied directly then
+    ConfigSnapshot deferredSnapshot(char separator) {
+        synchronized (this) {
+            if (loaded || loader == null) {
+                return null;
+            }
+            snapshotted = true;
+        }
+        return new ConfigSnapshot(this::valuesAtLoad, separator);
+    }
+
+    private synchronized Map<String, Object> valuesAtLoad() {
+        entries();
+        return loadedValues;
+    }
+
+    @Override
+    public SectionPathData get(Object key) {
+        return entries().get(key);
+    }
+
+    @Override
+    public boolean containsKey(Object key) {
+        return entries().containsKey(key);
+    }
+
+    @Override
+    public SectionPathData put(String key, SectionPathData value) {
+        return entries().put(key, value);
+    }
+
+    @Override
+    public SectionPathData remove(Object key) {
+        return entries().remove(key);
+    }
+
+    @Override
+    public void clear() {
+        entries().clear();
+    }
+
+    @Override
+    public int size() {
+        return entries().size();
+    }
+
+    @Override
+    public boolean isEmpty() {
+        return entries().isEmpty();
+    }
+
+    @Override
+    public Set<String> keySet() {
+        return entries().keySet();
+    }
+
+    @Override
+    public Set<Map.Entry<String, SectionPathData>> entrySet() {
+        return entries().entrySet();
+    }
+
+    @Override
+    public void forEach(BiConsumer<? super String, ? super SectionPathData> action) {
+        entries().forEach(action);
+    }
+}
@@ -1,10 +1,25 @@
 package com.stardevllc.config;
 
+import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
+import java.util.concurrent.locks.Lock;
+import java.util.function.Consumer;
 
 public class MemoryConfig extends MemorySection implements Config {
     protected Config defaults;
     protected Options options;
+    protected volatile Map<String, SectionPathData> pathIndex;
+    private char pathIndexSeparator;
+    protected volatile long version;
+    // Only set while something else (like a background save) reads the tree, writers then take it around each change
+    protected volatile Lock writeLock;
+    private volatile SubscriptionTrie subscriptions;
+    private volatile Interner interner;
+    // Longer strings are rarely repeated and would only fill the interner
+    private static final int MAX_INTERNED_LENGTH = 64;
+    // The config whose lazy section is being filled on the current thread
+    private static final ThreadLocal<MemoryConfig> MATERIALIZING = new ThreadLocal<>();
 
     public MemoryConfig() {
     }
@@ -13,6 +28,11 @@ public class MemoryConfig extends MemorySection implements Config {
         this.defaults = defaults;
     }
 
+    protected MemoryConfig(Config defaults, Map<String, SectionPathData> map) {
+        super(map);
+        this.defaults = defaults;
+    }
+
     @Override
     public void addDefault(String path, Object value) {
         if (defaults == null) {
@@ -20,6 +40,8 @@ public class MemoryConfig extends MemorySection implements Config {
         }
 
         defaults.set(path, value);
+        // With copyDefaults on the defaults are saved along with the entries
+        markModified();
     }
 
     @Override
@@ -41,6 +63,7 @@ public class MemoryConfig extends MemorySection implements Config {
     @Override
     public void setDefaults(Config defaults) {
         this.defaults = defaults;
+        markModified();
     }
 
     @Override
@@ -53,6 +76,314 @@ public class MemoryConfig extends MemorySection implements Config {
         return null;
     }
 
+    @Override
+    protected SectionPathData getSectionPathData(String path) {
+        Map<String, SectionPathData> index = pathIndex;
+        if (index == null) {
+            return super.getSectionPathData(path);
+        }
+
+        return getIndexedEntry(index, path);
+    }
+
+    @Override
+    protected SectionPathData getSectionPathData(ConfigPath path) {
+        Map<String, SectionPathData> index = pathIndex;
+        if (index == null || path.isEmpty() || path.separator() != options().pathSeparator()) {
+            return super.getSectionPathData(path);
+        }
+
+        return getIndexedEntry(index, path.path());
+    }
+
+    public long getVersion() {
+        return version;
+    }
+
+    public boolean isPathIndexed() {
+        return pathIndex != null;
+    }
+
+    protected void setPathIndexed(boolean value) {
+        if (!value) {
+            pathIndex = null;
+        } else if (pathIndex == null) {
+            rebuildPathIndex();
+        }
+    }
+
+    protected Interner getInterner() {
+        return interner;
+    }
+
+    protected void setInterner(Interner interner) {
+        this.interner = interner;
+    }
+
+    protected String internKey(String key) {
+        Interner interner = this.interner;
+        return interner == null ? key : interner.intern(key);
+    }
+
+    protected Object internValue(Object value) {
+        Interner interner = this.interner;
+        if (interner != null && value instanceof String string && string.length() <= MAX_INTERNED_LENGTH) {
+            return interner.intern(string);
+        }
+        return value;
+    }
+
+    protected Map<String, SectionPathData> createPathIndex() {
+        return new HashMap<>();
+    }
+
+    protected void rebuildPathIndex() {
+        Map<String, SectionPathData> index = createPathIndex();
+        pathIndexSeparator = options().pathSeparator();
+        indexChildren(index, this, "");
+        pathIndex = index;
+    }
+
+    private SectionPathData getIndexedEntry(Map<String, SectionPathData> index, String path) {
+        if (pathIndexSeparator != options().pathSeparator()) {
+            rebuildPathIndex();
+            index = pathIndex;
+        }
+
+        return index != null ? index.get(path) : super.getSectionPathData(path);
+    }
+
+    private void indexChildren(Map<String, SectionPathData> index, MemorySection section, String prefix) {
+        for (Map.Entry<String, SectionPathData> entry : section.map.entrySet()) {
+            String path = internKey(prefix.isEmpty() ? entry.getKey() : prefix + pathIndexSeparator + entry.getKey());
+            index.put(path, entry.getValue());
+            if (entry.getValue().getData() instanceof MemorySection child) {
+                indexChildren(index, child, path);
+            }
+        }
+    }
+
+    private void unindexChildren(Map<String, SectionPathData> index, MemorySection section, String prefix) {
+        for (Map.Entry<String, SectionPathData> entry : section.map.entrySet()) {
+            String path = prefix + pathIndexSeparator + entry.getKey();
+            index.remove(path);
+            if (entry.getValue().getData() instanceof MemorySection child) {
+                unindexChildren(index, child, path);
+            }
+        }
+    }
+
+    private String indexPath(MemorySection section, String key) {
+        if (pathIndexSeparator != options().pathSeparator()) {
+            rebuildPathIndex();
+            return null;
+        }
+
+        // Configs of the same shape index the same paths, so those are shared like the keys
+        return section == this ? key : internKey(createPath(section, key));
+    }
+
+    // Entries staged for a replacement are detached, so the index only has to follow once they are swapped in
+    @Override
+    protected void swapEntries(Map<String, SectionPathData> entries) {
+        super.swapEntries(entries);
+        if (pathIndex != null) {
+            rebuildPathIndex();
+        }
+    }
+
+    // Writes through a section that was removed from the tree, or through a staged replacement, change nothing in the
+    // config, so they must not be indexed under the old path, counted or reported
+    protected boolean isAttached(MemorySection section) {
+        while (section != this) {
+            if (!(section.getParent() instanceof MemorySection parent)) {
+                return false;
+            }
+            SectionPathData entry = parent.map.get(section.getName());
+            if (entry == null || entry.getData() != section) {
+                return false;
+            }
+            section = parent;
+        }
+        return true;
+    }
+
+    @Override
+    public void subscribe(String path, ConfigListener listener) {
+        if (listener == null) {
+            throw new IllegalArgumentException("Listener cannot be null");
+        }
+
+        subscriptions().add(path, options().pathSeparator(), listener);
+    }
+
+    @Override
+    public void unsubscribe(String path, ConfigListener listener) {
+        SubscriptionTrie subscriptions = this.subscriptions;
+        if (subscriptions != null) {
+            subscriptions.remove(path, options().pathSeparator(), listener);
+        }
+    }
+
+    // Listeners get every change made by the action in one call once it is done
+    public void batch(Runnable action) {
+        beginBatch();
+        try {
+            action.run();
+        } finally {
+            endBatch();
+        }
+    }
+
+    protected void beginBatch() {
+        SubscriptionTrie subscriptions = this.subscriptions;
+        if (subscriptions != null) {
+            subscriptions.beginBatch();
+        }
+    }
+
+    protected void endBatch() {
+        SubscriptionTrie subscriptions = this.subscriptions;
+        if (subscriptions != null) {
+            subscriptions.endBatch();
+        }
+    }
+
+    private SubscriptionTrie subscriptions() {
+        SubscriptionTrie subscriptions = this.subscriptions;
+        if (subscriptions == null) {
+            synchronized (this) {
+                subscriptions = this.subscriptions;
+                if (subscriptions == null) {
+                    this.subscriptions = subscriptions = new SubscriptionTrie();
+                }
+            }
+        }
+        return subscriptions;
+    }
+
+    private void publish(MemorySection section, String key, ConfigChange.Type type, Object oldValue, Object newValue) {
+        SubscriptionTrie subscriptions = this.subscriptions;
+        if (subscriptions == null || subscriptions.isEmpty()) {
+            return;
+        }
+
+        String path = section == this ? key : createPath(section, key);
+        subscriptions.publish(new ConfigChange(type, path, oldValue, newValue), options().pathSeparator());
+    }
+
+    // The loader fills the section the first time its entries are used, those entries do not count as changes
+    protected void deferEntries(MemorySection section, Consumer<Section> loader) {
+        section.map = new LazySectionMap(section, this, section.map, loader);
+    }
+
+    // Returns the config that was being materialized on this thread before, to be handed back to endMaterialize
+    MemoryConfig beginMaterialize() {
+        MemoryConfig previous = MATERIALIZING.get();
+        MATERIALIZING.set(this);
+        return previous;
+    }
+
+    static void endMaterialize(MemoryConfig previous) {
+        if (previous == null) {
+            MATERIALIZING.remove();
+        } else {
+            MATERIALIZING.set(previous);
+        }
+    }
+
+    // Only the thread running the loader is materializing, writes from other threads at the same time are real changes
+    boolean isMaterializing() {
+        return MATERIALIZING.get() == this;
+    }
+
+    protected void markModified() {
+        version++;
+    }
+
+    protected void onEntriesReplaced(MemorySection section, Map<String, SectionPathData> old) {
+        markModified();
+        section.invalidateSnapshot();
+
+        SubscriptionTrie subscriptions = this.subscriptions;
+        if (subscriptions != null && !subscriptions.isEmpty()) {
+            char separator = options().pathSeparator();
+            ConfigSnapshot before = snapshotOf(old, separator);
+            List<ConfigChange> changes = before.diff(snapshotOf(section.map, separator), section == this ? "" : section.getCurrentPath());
+            subscriptions.beginBatch();
+            try {
+                for (ConfigChange change : changes) {
+                    subscriptions.publish(change, separator);
+                }
+            } finally {
+                subscriptions.endBatch();
+            }
+        }
+    }
+
+    protected void onEntryAdded(MemorySection section, String key, SectionPathData entry) {
+        if (isMaterializing() || !isAttached(section)) {
+            return;
+        }
+
+        markModified();
+        section.invalidateSnapshot();
+        publish(section, key, ConfigChange.Type.ADDED, null, entry.getData());
+        Map<String, SectionPathData> index = pathIndex;
+        if (index != null) {
+            String path = indexPath(section, key);
+            if (path != null) {
+                index.put(path, entry);
+                if (entry.getData() instanceof MemorySection child) {
+                    indexChildren(index, child, path);
+                }
+            }
+        }
+    }
+
+    protected void onEntryRemoved(MemorySection section, String key, SectionPathData entry) {
+        if (isMaterializing() || !isAttached(section)) {
+            return;
+        }
+
+        markModified();
+        section.invalidateSnapshot();
+        publish(section, key, ConfigChange.Type.REMOVED, entry.getData(), null);
+        Map<String, SectionPathData> index = pathIndex;
+        if (index != null) {
+            String path = indexPath(section, key);
+            if (path != null) {
+                index.remove(path);
+                if (entry.getData() instanceof MemorySection child) {
+                    unindexChildren(index, child, path);
+                }
+            }
+        }
+    }
+
+    protected void onEntryChanged(MemorySection section, String key, SectionPathData entry, Object oldData) {
+        if (isMaterializing() || !isAttached(section)) {
+            return;
+        }
+
+        markModified();
+        section.invalidateSnapshot();
+        publish(section, key, ConfigChange.Type.CHANGED, oldData, entry.getData());
+        Map<String, SectionPathData> index = pathIndex;
+        if (index != null) {
+            String path = indexPath(section, key);
+            if (path != null) {
+                index.put(path, entry);
+                if (oldData instanceof MemorySection child) {
+                    unindexChildren(index, child, path);
+                }
+                if (entry.getData() instanceof MemorySection child) {
+                    indexChildren(index, child, path);
+                }
+            }
+        }
+    }
+
     @Override
     public Options options() {
         if (options == null) {
@@ -74,6 +405,9 @@ public class MemoryConfig extends MemorySection implements Config {
 
         @Override
         public Options copyDefaults(boolean value) {
+            if (value != copyDefaults()) {
+                configuration().markModified();
+            }
             super.copyDefaults(value);
             return this;
         }
@@ -83,5 +417,24 @@ public class MemoryConfig extends MemorySection implements Config {
             super.pathSeparator(value);
             return this;
         }
+
+        public boolean pathIndex() {
+            return configuration().isPathIndexed();
+        }
+
+        public Options pathIndex(boolean value) {
+            configuration().setPathIndexed(value);
+            return this;
+        }
+
+        public Interner interner() {
+            return configuration().getInterner();
+        }
+
+        // Keys and short string values set from then on are shared through the interner, null turns it off
+        public Options interner(Interner value) {
+            configuration().setInterner(value);
+            return this;
+        }
     }
 }
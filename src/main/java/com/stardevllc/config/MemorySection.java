@@ -3,17 +3,32 @@ package com.stardevllc.config;
 import com.stardevllc.config.serialization.ConfigSerializable;
 
 import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.locks.Lock;
+import java.util.function.BiConsumer;
+import java.util.function.Consumer;
+import java.util.function.Function;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
 
 import static com.stardevllc.config.NumberConversions.*;
 
 public class MemorySection implements Section {
-    protected final Map<String, SectionPathData> map = new LinkedHashMap<>();
+
+    protected volatile Map<String, SectionPathData> map;
     private final Config root;
     private final Section parent;
     private final String path;
     private final String fullPath;
+    private volatile DefaultCache defaultCache;
+    private volatile ConfigSnapshot snapshot;
 
     protected MemorySection() {
+        this(new CompactSectionMap());
+    }
+
+    // Roots that keep their entries in another kind of map pass it in, createMap is only used for the child sections
+    protected MemorySection(Map<String, SectionPathData> map) {
         if (!(this instanceof Config)) {
             throw new IllegalStateException("Cannot construct a root MemorySection when not a Configuration");
         }
@@ -22,14 +37,32 @@ public class MemorySection implements Section {
         this.fullPath = "";
         this.parent = null;
         this.root = (Config) this;
+        this.map = map;
     }
 
     protected MemorySection(Section parent, String path) {
         this.path = path;
         this.parent = parent;
         this.root = parent.getRoot();
+        this.map = root instanceof MemorySection section ? section.createMap() : new CompactSectionMap();
+
+        this.fullPath = root instanceof MemoryConfig config ? config.internKey(createPath(parent, path)) : createPath(parent, path);
+    }
 
-        this.fullPath = createPath(parent, path);
+    private MemorySection(MemorySection target) {
+        this.path = target.path;
+        this.parent = target.parent;
+        this.root = target.root;
+        this.fullPath = target.fullPath;
+        this.map = root instanceof MemorySection section ? section.createMap() : new CompactSectionMap();
+    }
+
+    protected Map<String, SectionPathData> createMap() {
+        return new CompactSectionMap();
+    }
+
+    protected MemorySection createChildSection(MemorySection parent, String key) {
+        return new MemorySection(parent, key);
     }
 
     @Override
@@ -147,41 +180,255 @@ public class MemorySection implements Section {
         // i1 is the leading (higher) index
         // i2 is the trailing (lower) index
         int i1 = -1, i2;
-        Section section = this;
+        MemorySection section = this;
         while ((i1 = path.indexOf(separator, i2 = i1 + 1)) != -1) {
-            String node = path.substring(i2, i1);
-            Section subSection = section.getConfigurationSection(node);
-            if (subSection == null) {
-                if (value == null) {
-                    // no need to create missing sub-sections if we want to remove the value:
-                    return;
-                }
-                section = section.createSection(node);
-            } else {
-                section = subSection;
+            // no need to create missing sub-sections if we want to remove the value:
+            section = section.getEntrySection(path.substring(i2, i1), value != null);
+            if (section == null) {
+                return;
+            }
+        }
+
+        section.setEntry(path.substring(i2), value);
+    }
+
+    @Override
+    public void set(ConfigPath path, Object value) {
+        if (path.isEmpty()) {
+            throw new IllegalArgumentException("Cannot set a value at an empty path");
+        }
+
+        MemorySection section = this;
+        int last = path.length() - 1;
+        for (int i = 0; i < last; i++) {
+            section = section.getEntrySection(path.key(i), value != null);
+            if (section == null) {
+                return;
             }
         }
 
-        String key = path.substring(i2);
-        if (section == this) {
-            if (value == null) {
-                map.remove(key);
+        section.setEntry(path.key(last), value);
+    }
+
+    protected MemorySection getEntrySection(String key, boolean create) {
+        SectionPathData entry = map.get(key);
+        if (entry != null && entry.getData() instanceof MemorySection section) {
+            return section;
+        }
+
+        return create ? createEntrySection(key) : null;
+    }
+
+    protected void setEntry(String key, Object value) {
+        Lock lock = lockWrite();
+        try {
+            putEntry(key, value);
+        } finally {
+            unlockWrite(lock);
+        }
+    }
+
+    private void putEntry(String key, Object value) {
+        if (root instanceof MemoryConfig config) {
+            key = config.internKey(key);
+            value = config.internValue(value);
+        }
+        if (value == null) {
+            SectionPathData removed = map.remove(key);
+            if (removed != null) {
+                entryRemoved(key, removed);
+            }
+        } else {
+            SectionPathData entry = map.get(key);
+            if (entry == null) {
+                entry = new SectionPathData(value);
+                map.put(key, entry);
+                entryAdded(key, entry);
             } else {
-                SectionPathData entry = map.get(key);
-                if (entry == null) {
-                    map.put(key, new SectionPathData(value));
-                } else {
-                    entry.setData(value);
+                Object oldData = entry.getData();
+                entry.setData(value);
+                entryChanged(key, entry, oldData);
+            }
+        }
+    }
+
+    protected MemorySection createEntrySection(String key) {
+        if (root instanceof MemoryConfig config) {
+            key = config.internKey(key);
+        }
+        MemorySection result = root instanceof MemorySection section ? section.createChildSection(this, key) : new MemorySection(this, key);
+        SectionPathData entry = new SectionPathData(result);
+        Lock lock = lockWrite();
+        try {
+            SectionPathData replaced = map.put(key, entry);
+            if (replaced != null) {
+                entryRemoved(key, replaced);
+            }
+            entryAdded(key, entry);
+        } finally {
+            unlockWrite(lock);
+        }
+        return result;
+    }
+
+    protected void clearEntries() {
+        Lock lock = lockWrite();
+        try {
+            if (root instanceof MemoryConfig config) {
+                for (Map.Entry<String, SectionPathData> entry : map.entrySet()) {
+                    config.onEntryRemoved(this, entry.getKey(), entry.getValue());
                 }
             }
-        } else {
-            section.set(key, value);
+            map.clear();
+        } finally {
+            unlockWrite(lock);
+        }
+    }
+
+    // The new entries are built in a detached section and then swapped in, so readers only ever see the old or the new ones
+    protected void replaceEntries(Consumer<Section> loader) {
+        StagingSection staging = new StagingSection(this);
+        loader.accept(staging);
+        swapEntries(staging.map);
+    }
+
+    protected void swapEntries(Map<String, SectionPathData> entries) {
+        Lock lock = lockWrite();
+        try {
+            Map<String, SectionPathData> old = this.map;
+            this.map = entries;
+            if (root instanceof MemoryConfig config) {
+                config.onEntriesReplaced(this, old);
+            }
+        } finally {
+            unlockWrite(lock);
+        }
+    }
+
+    private Lock lockWrite() {
+        beginWrite();
+        Lock lock = root instanceof MemoryConfig config ? config.writeLock : null;
+        if (lock != null) {
+            lock.lock();
+        }
+        return lock;
+    }
+
+    private void unlockWrite(Lock lock) {
+        try {
+            if (lock != null) {
+                lock.unlock();
+            }
+        } finally {
+            endWrite();
+        }
+    }
+
+    // Listeners hear about the changes made between these two once every lock taken for them is released again, so
+    // anything that locks around a write has to call them outside its lock
+    protected void beginWrite() {
+        if (root instanceof MemoryConfig config) {
+            config.beginBatch();
+        }
+    }
+
+    protected void endWrite() {
+        if (root instanceof MemoryConfig config) {
+            config.endBatch();
+        }
+    }
+
+    @Override
+    public ConfigSnapshot snapshot() {
+        ConfigSnapshot snapshot = this.snapshot;
+        if (snapshot == null) {
+            MemoryConfig config = root instanceof MemoryConfig memoryConfig ? memoryConfig : null;
+            long version = config == null ? 0 : config.getVersion();
+
+            snapshot = snapshotOf(map, root.options().pathSeparator());
+
+            // Only cache it if nothing changed while it was being built
+            if (config == null || config.getVersion() == version) {
+                this.snapshot = snapshot;
+            }
+        }
+        return snapshot;
+    }
+
+    static ConfigSnapshot snapshotOf(Map<String, SectionPathData> map, char separator) {
+        // Taking the snapshot must not be what loads a lazy section
+        if (map instanceof LazySectionMap lazy) {
+            ConfigSnapshot deferred = lazy.deferredSnapshot(separator);
+            if (deferred != null) {
+                return deferred;
+            }
+        }
+        return new ConfigSnapshot(snapshotValues(map), separator);
+    }
+
+    static Map<String, Object> snapshotValues(Map<String, SectionPathData> map) {
+        Map<String, Object> values = new LinkedHashMap<>();
+        for (Map.Entry<String, SectionPathData> entry : map.entrySet()) {
+            values.put(entry.getKey(), snapshotValue(entry.getValue().getData()));
+        }
+        return values;
+    }
+
+    private static Object snapshotValue(Object data) {
+        if (data instanceof MemorySection section) {
+            return section.snapshot();
+        } else if (data instanceof List<?> list) {
+            List<Object> copy = new ArrayList<>(list.size());
+            for (Object element : list) {
+                copy.add(snapshotValue(element));
+            }
+            return Collections.unmodifiableList(copy);
+        } else if (data instanceof Map<?, ?> map) {
+            Map<Object, Object> copy = new LinkedHashMap<>();
+            for (Map.Entry<?, ?> entry : map.entrySet()) {
+                copy.put(entry.getKey(), snapshotValue(entry.getValue()));
+            }
+            return Collections.unmodifiableMap(copy);
+        } else if (data instanceof int[] array) {
+            return array.clone();
+        } else if (data instanceof long[] array) {
+            return array.clone();
+        } else if (data instanceof double[] array) {
+            return array.clone();
+        }
+        return data;
+    }
+
+    protected void invalidateSnapshot() {
+        MemorySection section = this;
+        while (section != null && section.snapshot != null) {
+            section.snapshot = null;
+            section = section.parent instanceof MemorySection parent ? parent : null;
+        }
+    }
+
+    private void entryAdded(String key, SectionPathData entry) {
+        if (root instanceof MemoryConfig config) {
+            config.onEntryAdded(this, key, entry);
+        }
+    }
+
+    private void entryRemoved(String key, SectionPathData entry) {
+        if (root instanceof MemoryConfig config) {
+            config.onEntryRemoved(this, key, entry);
+        }
+    }
+
+    private void entryChanged(String key, SectionPathData entry, Object oldData) {
+        if (root instanceof MemoryConfig config) {
+            config.onEntryChanged(this, key, entry, oldData);
         }
     }
 
     @Override
     public Object get(String path) {
-        return get(path, getDefault(path));
+        Object val = get(path, null);
+        return val != null ? val : getDefault(path);
     }
 
     @Override
@@ -190,33 +437,29 @@ public class MemorySection implements Section {
             return this;
         }
 
-        Config root = getRoot();
-        if (root == null) {
-            throw new IllegalStateException("Cannot access section without a root");
-        }
+        SectionPathData result = getSectionPathData(path);
+        return result == null ? def : result.getData();
+    }
 
-        final char separator = root.options().pathSeparator();
-        // i1 is the leading (higher) index
-        // i2 is the trailing (lower) index
-        int i1 = -1, i2;
-        Section section = this;
-        while ((i1 = path.indexOf(separator, i2 = i1 + 1)) != -1) {
-            final String currentPath = path.substring(i2, i1);
-            if (!section.contains(currentPath, true)) {
-                return def;
-            }
-            section = section.getConfigurationSection(currentPath);
-            if (section == null) {
-                return def;
-            }
-        }
+    @Override
+    public Object get(ConfigPath path) {
+        Object val = get(path, null);
+        return val != null ? val : getDefault(path);
+    }
 
-        String key = path.substring(i2);
-        if (section == this) {
-            SectionPathData result = map.get(key);
-            return result == null ? def : result.getData();
+    @Override
+    public Object get(ConfigPath path, Object def) {
+        if (path.isEmpty()) {
+            return this;
         }
-        return section.get(key, def);
+
+        SectionPathData result = getSectionPathData(path);
+        return result == null ? def : result.getData();
+    }
+
+    @Override
+    public boolean contains(ConfigPath path) {
+        return get(path) != null;
     }
 
     @Override
@@ -230,24 +473,27 @@ public class MemorySection implements Section {
         // i1 is the leading (higher) index
         // i2 is the trailing (lower) index
         int i1 = -1, i2;
-        Section section = this;
+        MemorySection section = this;
         while ((i1 = path.indexOf(separator, i2 = i1 + 1)) != -1) {
-            String node = path.substring(i2, i1);
-            Section subSection = section.getConfigurationSection(node);
-            if (subSection == null) {
-                section = section.createSection(node);
-            } else {
-                section = subSection;
-            }
+            section = section.getEntrySection(path.substring(i2, i1), true);
         }
 
-        String key = path.substring(i2);
-        if (section == this) {
-            Section result = new MemorySection(this, key);
-            map.put(key, new SectionPathData(result));
-            return result;
+        return section.createEntrySection(path.substring(i2));
+    }
+
+    @Override
+    public Section createSection(ConfigPath path) {
+        if (path.isEmpty()) {
+            throw new IllegalArgumentException("Cannot create a section at an empty path");
         }
-        return section.createSection(key);
+
+        MemorySection section = this;
+        int last = path.length() - 1;
+        for (int i = 0; i < last; i++) {
+            section = section.getEntrySection(path.key(i), true);
+        }
+
+        return section.createEntrySection(path.key(last));
     }
 
     @Override
@@ -268,8 +514,13 @@ public class MemorySection implements Section {
     // Primitives
     @Override
     public String getString(String path) {
+        Object val = get(path, null);
+        if (val != null) {
+            return val.toString();
+        }
+
         Object def = getDefault(path);
-        return getString(path, def != null ? def.toString() : null);
+        return def != null ? def.toString() : null;
     }
 
     @Override
@@ -278,6 +529,23 @@ public class MemorySection implements Section {
         return val != null ? val.toString() : def;
     }
 
+    @Override
+    public String getString(ConfigPath path) {
+        Object val = get(path, null);
+        if (val != null) {
+            return val.toString();
+        }
+
+        Object def = getDefault(path);
+        return def != null ? def.toString() : null;
+    }
+
+    @Override
+    public String getString(ConfigPath path, String def) {
+        Object val = get(path, null);
+        return val != null ? val.toString() : def;
+    }
+
     @Override
     public boolean isString(String path) {
         Object val = get(path);
@@ -286,14 +554,36 @@ public class MemorySection implements Section {
 
     @Override
     public int getInt(String path) {
+        SectionPathData entry = getSectionPathData(path);
+        if (entry != null && entry.isNumber()) {
+            return entry.getInt();
+        }
+
         Object def = getDefault(path);
-        return getInt(path, def instanceof Number ? toInt(def) : 0);
+        return def instanceof Number ? toInt(def) : 0;
     }
 
     @Override
     public int getInt(String path, int def) {
-        Object val = get(path, def);
-        return val instanceof Number ? toInt(val) : def;
+        SectionPathData entry = getSectionPathData(path);
+        return entry != null && entry.isNumber() ? entry.getInt() : def;
+    }
+
+    @Override
+    public int getInt(ConfigPath path) {
+        SectionPathData entry = getSectionPathData(path);
+        if (entry != null && entry.isNumber()) {
+            return entry.getInt();
+        }
+
+        Object def = getDefault(path);
+        return def instanceof Number ? toInt(def) : 0;
+    }
+
+    @Override
+    public int getInt(ConfigPath path, int def) {
+        SectionPathData entry = getSectionPathData(path);
+        return entry != null && entry.isNumber() ? entry.getInt() : def;
     }
 
     @Override
@@ -304,14 +594,36 @@ public class MemorySection implements Section {
 
     @Override
     public boolean getBoolean(String path) {
+        SectionPathData entry = getSectionPathData(path);
+        if (entry != null && entry.isBoolean()) {
+            return entry.getBoolean();
+        }
+
         Object def = getDefault(path);
-        return getBoolean(path, def instanceof Boolean ? (Boolean) def : false);
+        return def instanceof Boolean ? (Boolean) def : false;
     }
 
     @Override
     public boolean getBoolean(String path, boolean def) {
-        Object val = get(path, def);
-        return val instanceof Boolean ? (Boolean) val : def;
+        SectionPathData entry = getSectionPathData(path);
+        return entry != null && entry.isBoolean() ? entry.getBoolean() : def;
+    }
+
+    @Override
+    public boolean getBoolean(ConfigPath path) {
+        SectionPathData entry = getSectionPathData(path);
+        if (entry != null && entry.isBoolean()) {
+            return entry.getBoolean();
+        }
+
+        Object def = getDefault(path);
+        return def instanceof Boolean ? (Boolean) def : false;
+    }
+
+    @Override
+    public boolean getBoolean(ConfigPath path, boolean def) {
+        SectionPathData entry = getSectionPathData(path);
+        return entry != null && entry.isBoolean() ? entry.getBoolean() : def;
     }
 
     @Override
@@ -322,14 +634,36 @@ public class MemorySection implements Section {
 
     @Override
     public double getDouble(String path) {
+        SectionPathData entry = getSectionPathData(path);
+        if (entry != null && entry.isNumber()) {
+            return entry.getDouble();
+        }
+
         Object def = getDefault(path);
-        return getDouble(path, def instanceof Number ? toDouble(def) : 0);
+        return def instanceof Number ? toDouble(def) : 0;
     }
 
     @Override
     public double getDouble(String path, double def) {
-        Object val = get(path, def);
-        return val instanceof Number ? toDouble(val) : def;
+        SectionPathData entry = getSectionPathData(path);
+        return entry != null && entry.isNumber() ? entry.getDouble() : def;
+    }
+
+    @Override
+    public double getDouble(ConfigPath path) {
+        SectionPathData entry = getSectionPathData(path);
+        if (entry != null && entry.isNumber()) {
+            return entry.getDouble();
+        }
+
+        Object def = getDefault(path);
+        return def instanceof Number ? toDouble(def) : 0;
+    }
+
+    @Override
+    public double getDouble(ConfigPath path, double def) {
+        SectionPathData entry = getSectionPathData(path);
+        return entry != null && entry.isNumber() ? entry.getDouble() : def;
     }
 
     @Override
@@ -340,14 +674,36 @@ public class MemorySection implements Section {
 
     @Override
     public long getLong(String path) {
+        SectionPathData entry = getSectionPathData(path);
+        if (entry != null && entry.isNumber()) {
+            return entry.getLong();
+        }
+
         Object def = getDefault(path);
-        return getLong(path, def instanceof Number ? toLong(def) : 0);
+        return def instanceof Number ? toLong(def) : 0;
     }
 
     @Override
     public long getLong(String path, long def) {
-        Object val = get(path, def);
-        return val instanceof Number ? toLong(val) : def;
+        SectionPathData entry = getSectionPathData(path);
+        return entry != null && entry.isNumber() ? entry.getLong() : def;
+    }
+
+    @Override
+    public long getLong(ConfigPath path) {
+        SectionPathData entry = getSectionPathData(path);
+        if (entry != null && entry.isNumber()) {
+            return entry.getLong();
+        }
+
+        Object def = getDefault(path);
+        return def instanceof Number ? toLong(def) : 0;
+    }
+
+    @Override
+    public long getLong(ConfigPath path, long def) {
+        SectionPathData entry = getSectionPathData(path);
+        return entry != null && entry.isNumber() ? entry.getLong() : def;
     }
 
     @Override
@@ -359,8 +715,13 @@ public class MemorySection implements Section {
     // Java
     @Override
     public List<?> getList(String path) {
+        Object val = get(path, null);
+        if (val instanceof List) {
+            return (List<?>) val;
+        }
+
         Object def = getDefault(path);
-        return getList(path, def instanceof List ? (List<?>) def : null);
+        return def instanceof List ? (List<?>) def : null;
     }
 
     @Override
@@ -630,10 +991,54 @@ public class MemorySection implements Section {
         return result;
     }
 
+    @Override
+    public int[] getIntArray(String path) {
+        return getArray(getSectionPathData(path), SectionPathData::getIntArray, defaults -> defaults.getIntArray(path), new int[0]);
+    }
+
+    @Override
+    public int[] getIntArray(ConfigPath path) {
+        return getArray(getSectionPathData(path), SectionPathData::getIntArray, defaults -> defaults.getIntArray(path), new int[0]);
+    }
+
+    @Override
+    public long[] getLongArray(String path) {
+        return getArray(getSectionPathData(path), SectionPathData::getLongArray, defaults -> defaults.getLongArray(path), new long[0]);
+    }
+
+    @Override
+    public long[] getLongArray(ConfigPath path) {
+        return getArray(getSectionPathData(path), SectionPathData::getLongArray, defaults -> defaults.getLongArray(path), new long[0]);
+    }
+
+    @Override
+    public double[] getDoubleArray(String path) {
+        return getArray(getSectionPathData(path), SectionPathData::getDoubleArray, defaults -> defaults.getDoubleArray(path), new double[0]);
+    }
+
+    @Override
+    public double[] getDoubleArray(ConfigPath path) {
+        return getArray(getSectionPathData(path), SectionPathData::getDoubleArray, defaults -> defaults.getDoubleArray(path), new double[0]);
+    }
+
+    private <T> T getArray(SectionPathData entry, Function<SectionPathData, T> read, Function<Section, T> readDefaults, T empty) {
+        if (entry != null && entry.hasElements()) {
+            return read.apply(entry);
+        }
+
+        Section defaults = getRoot() == this ? getRoot().getDefaults() : getDefaultSection();
+        return defaults == null ? empty : readDefaults.apply(defaults);
+    }
+
     @Override
     public <T> T getObject(String path, Class<T> clazz) {
+        Object val = get(path, null);
+        if (clazz.isInstance(val)) {
+            return clazz.cast(val);
+        }
+
         Object def = getDefault(path);
-        return getObject(path, clazz, clazz.isInstance(def) ? clazz.cast(def) : null);
+        return clazz.isInstance(def) ? clazz.cast(def) : null;
     }
 
     @Override
@@ -659,7 +1064,18 @@ public class MemorySection implements Section {
             return val instanceof Section ? (Section) val : null;
         }
 
-        val = get(path, getDefault(path));
+        val = getDefault(path);
+        return val instanceof Section ? createSection(path) : null;
+    }
+
+    @Override
+    public Section getConfigurationSection(ConfigPath path) {
+        Object val = get(path, null);
+        if (val != null) {
+            return val instanceof Section ? (Section) val : null;
+        }
+
+        val = getDefault(path);
         return val instanceof Section ? createSection(path) : null;
     }
 
@@ -679,19 +1095,67 @@ public class MemorySection implements Section {
     protected Object getDefault(String path) {
         Config root = getRoot();
         Config defaults = root == null ? null : root.getDefaults();
-        return defaults == null ? null : defaults.get(createPath(this, path));
-    }
+        if (defaults == null) {
+            return null;
+        }
 
-    protected void mapChildrenKeys(Set<String> output, Section section, boolean deep) {
-        if (section instanceof MemorySection sec) {
+        Map<Object, Object> cache = getDefaultCache(defaults);
+        Object value = cache == null ? null : cache.get(path);
+        if (value == null) {
+            value = defaults.get(createPath(this, path));
+            // Misses are not kept, paths that have no default (like per player keys) would grow the cache forever
+            if (cache != null && value != null) {
+                cache.put(path, value);
+            }
+        }
+        return value;
+    }
 
-            for (Map.Entry<String, SectionPathData> entry : sec.map.entrySet()) {
-                output.add(createPath(section, entry.getKey(), this));
+    protected Object getDefault(ConfigPath path) {
+        Config root = getRoot();
+        Config defaults = root == null ? null : root.getDefaults();
+        if (defaults == null) {
+            return null;
+        }
 
-                if (deep && entry.getValue().getData() instanceof Section subsection) {
-                    mapChildrenKeys(output, subsection, true);
-                }
+        Map<Object, Object> cache = getDefaultCache(defaults);
+        Object value = cache == null ? null : cache.get(path);
+        if (value == null) {
+            if (root == this) {
+                value = defaults.get(path);
+            } else {
+                Section defaultSection = getDefaultSection();
+                value = defaultSection == null ? null : defaultSection.get(path);
             }
+            // Misses are not kept, paths that have no default (like per player keys) would grow the cache forever
+            if (cache != null && value != null) {
+                cache.put(path, value);
+            }
+        }
+        return value;
+    }
+
+    // Resolved defaults are kept per section until the defaults config is replaced or modified
+    private Map<Object, Object> getDefaultCache(Config defaults) {
+        if (!(defaults instanceof MemoryConfig source)) {
+            return null;
+        }
+
+        DefaultCache cache = this.defaultCache;
+        long version = source.getVersion();
+        if (cache == null || cache.source != source || cache.version != version) {
+            cache = new DefaultCache(source, version);
+            this.defaultCache = cache;
+        }
+        return cache.values;
+    }
+
+    protected void mapChildrenKeys(Set<String> output, Section section, boolean deep) {
+        if (section instanceof MemorySection sec) {
+            sec.walk(new StringBuilder(createPath(section, null, this)), (path, depth, value) -> {
+                output.add(path.toString());
+                return deep;
+            });
         } else {
             Set<String> keys = section.getKeys(deep);
 
@@ -703,18 +1167,12 @@ public class MemorySection implements Section {
 
     protected void mapChildrenValues(Map<String, Object> output, Section section, boolean deep) {
         if (section instanceof MemorySection sec) {
-
-            for (Map.Entry<String, SectionPathData> entry : sec.map.entrySet()) {
-                String childPath = createPath(section, entry.getKey(), this);
+            sec.walk(new StringBuilder(createPath(section, null, this)), (path, depth, value) -> {
+                String childPath = path.toString();
                 output.remove(childPath);
-                output.put(childPath, entry.getValue().getData());
-
-                if (entry.getValue().getData() instanceof Section) {
-                    if (deep) {
-                        mapChildrenValues(output, (Section) entry.getValue().getData(), true);
-                    }
-                }
-            }
+                output.put(childPath, value);
+                return deep;
+            });
         } else {
             Map<String, Object> values = section.getValues(deep);
 
@@ -724,6 +1182,29 @@ public class MemorySection implements Section {
         }
     }
 
+    @Override
+    public void walk(ConfigVisitor visitor) {
+        walk(new StringBuilder(), visitor);
+    }
+
+    // The paths start with whatever is in the buffer already
+    private void walk(StringBuilder path, ConfigVisitor visitor) {
+        Config root = getRoot();
+        if (root == null) {
+            throw new IllegalStateException("Cannot walk a section without a root");
+        }
+        map.forEach(new Walker(path, root.options().pathSeparator(), visitor));
+    }
+
+    @Override
+    public Stream<Map.Entry<String, Object>> entries(boolean deep) {
+        Config root = getRoot();
+        if (root == null) {
+            throw new IllegalStateException("Cannot stream a section without a root");
+        }
+        return StreamSupport.stream(new SectionSpliterator(this, root.options().pathSeparator(), deep), false);
+    }
+
     @SuppressWarnings("ConstantValue")
     public static String createPath(Section section, String key) {
         return createPath(section, key, section == null ? null : section.getRoot());
@@ -772,6 +1253,7 @@ public class MemorySection implements Section {
         final SectionPathData pathData = getSectionPathData(path);
         if (pathData != null) {
             pathData.setComments(comments);
+            commentsChanged();
         }
     }
 
@@ -785,6 +1267,13 @@ public class MemorySection implements Section {
         final SectionPathData pathData = getSectionPathData(path);
         if (pathData != null) {
             pathData.setInlineComments(comments);
+            commentsChanged();
+        }
+    }
+
+    private void commentsChanged() {
+        if (root instanceof MemoryConfig config && !config.isMaterializing()) {
+            config.markModified();
         }
     }
 
@@ -793,7 +1282,7 @@ public class MemorySection implements Section {
         setComments(path, List.of(comments));
     }
 
-    private SectionPathData getSectionPathData(String path) {
+    protected SectionPathData getSectionPathData(String path) {
         Config root = getRoot();
         if (root == null) {
             throw new IllegalStateException("Cannot access section without a root");
@@ -803,21 +1292,34 @@ public class MemorySection implements Section {
         // i1 is the leading (higher) index
         // i2 is the trailing (lower) index
         int i1 = -1, i2;
-        Section section = this;
+        MemorySection section = this;
         while ((i1 = path.indexOf(separator, i2 = i1 + 1)) != -1) {
-            section = section.getConfigurationSection(path.substring(i2, i1));
-            if (section == null) {
+            SectionPathData entry = section.map.get(path.substring(i2, i1));
+            if (entry == null || !(entry.getData() instanceof MemorySection subSection)) {
                 return null;
             }
+            section = subSection;
         }
 
-        String key = path.substring(i2);
-        if (section == this) {
-            return map.get(key);
-        } else if (section instanceof MemorySection) {
-            return ((MemorySection) section).getSectionPathData(key);
+        return section.map.get(path.substring(i2));
+    }
+
+    protected SectionPathData getSectionPathData(ConfigPath path) {
+        if (path.isEmpty()) {
+            return null;
         }
-        return null;
+
+        MemorySection section = this;
+        int last = path.length() - 1;
+        for (int i = 0; i < last; i++) {
+            SectionPathData entry = section.map.get(path.key(i));
+            if (entry == null || !(entry.getData() instanceof MemorySection subSection)) {
+                return null;
+            }
+            section = subSection;
+        }
+
+        return section.map.get(path.key(last));
     }
 
     @Override
@@ -830,4 +1332,81 @@ public class MemorySection implements Section {
                 (root == null ? null : root.getClass().getSimpleName()) +
                 "']";
     }
+
+    private static final class DefaultCache {
+        private final MemoryConfig source;
+        private final long version;
+        // Only paths the defaults have, so it is never larger than they are
+        private final Map<Object, Object> values = new ConcurrentHashMap<>();
+
+        private DefaultCache(MemoryConfig source, long version) {
+            this.source = source;
+            this.version = version;
+        }
+    }
+
+    // One per walk, the path is cut back to where it was after each entry so nothing is allocated per entry
+    private static final class Walker implements BiConsumer<String, SectionPathData> {
+        private final StringBuilder path;
+        private final char separator;
+        private final ConfigVisitor visitor;
+        private int depth;
+
+        private Walker(StringBuilder path, char separator, ConfigVisitor visitor) {
+            this.path = path;
+            this.separator = separator;
+            this.visitor = visitor;
+        }
+
+        @Override
+        public void accept(String key, SectionPathData entry) {
+            int length = path.length();
+            if (length > 0) {
+                path.append(separator);
+            }
+            path.append(key);
+
+            Object value = entry.getData();
+            if (visitor.visit(path, depth, value) && value instanceof Section section) {
+                depth++;
+                try {
+                    if (section instanceof MemorySection memorySection) {
+                        memorySection.map.forEach(this);
+                    } else {
+                        section.walk((childPath, childDepth, childValue) -> {
+                            int childLength = path.length();
+                            path.append(separator).append(childPath);
+                            try {
+                                return visitor.visit(path, depth + childDepth, childValue);
+                            } finally {
+                                path.setLength(childLength);
+                            }
+                        });
+                    }
+                } finally {
+                    depth--;
+                }
+            }
+            path.setLength(length);
+        }
+    }
+
+    private static final class StagingSection extends MemorySection {
+        private final MemorySection target;
+
+        private StagingSection(MemorySection target) {
+            super(target);
+            this.target = target;
+        }
+
+        @Override
+        protected MemorySection createEntrySection(String key) {
+            if (getRoot() instanceof MemoryConfig config) {
+                key = config.internKey(key);
+            }
+            MemorySection result = ((MemorySection) getRoot()).createChildSection(target, key);
+            map.put(key, new SectionPathData(result));
+            return result;
+        }
+    }
 }
@@ -1,10 +1,13 @@
 package com.stardevllc.config;
 
+import com.stardevllc.config.serialization.ConfigBinder;
 import com.stardevllc.config.serialization.ConfigSerializable;
 
+import java.util.ArrayList;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.stream.Stream;
 
 public interface Section {
     Set<String> getKeys(boolean deep);
@@ -37,40 +40,100 @@ public interface Section {
 
     Object get(String path, Object def);
 
+    default Object get(ConfigPath path) {
+        return get(toPath(path));
+    }
+
+    default Object get(ConfigPath path, Object def) {
+        return get(toPath(path), def);
+    }
+
+    default boolean contains(ConfigPath path) {
+        return contains(toPath(path));
+    }
+
     void set(String path, Object value);
 
+    default void set(ConfigPath path, Object value) {
+        set(toPath(path), value);
+    }
+
     Section createSection(String path);
 
     Section createSection(String path, Map<?, ?> map);
 
+    default Section createSection(ConfigPath path) {
+        return createSection(toPath(path));
+    }
+
     String getString(String path);
 
     String getString(String path, String def);
 
+    default String getString(ConfigPath path) {
+        return getString(toPath(path));
+    }
+
+    default String getString(ConfigPath path, String def) {
+        return getString(toPath(path), def);
+    }
+
     boolean isString(String path);
 
     int getInt(String path);
 
     int getInt(String path, int def);
 
+    default int getInt(ConfigPath path) {
+        return getInt(toPath(path));
+    }
+
+    default int getInt(ConfigPath path, int def) {
+        return getInt(toPath(path), def);
+    }
+
     boolean isInt(String path);
 
     boolean getBoolean(String path);
 
     boolean getBoolean(String path, boolean def);
 
+    default boolean getBoolean(ConfigPath path) {
+        return getBoolean(toPath(path));
+    }
+
+    default boolean getBoolean(ConfigPath path, boolean def) {
+        return getBoolean(toPath(path), def);
+    }
+
     boolean isBoolean(String path);
 
     double getDouble(String path);
 
     double getDouble(String path, double def);
 
+    default double getDouble(ConfigPath path) {
+        return getDouble(toPath(path));
+    }
+
+    default double getDouble(ConfigPath path, double def) {
+        return getDouble(toPath(path), def);
+    }
+
     boolean isDouble(String path);
 
     long getLong(String path);
 
     long getLong(String path, long def);
 
+    default long getLong(ConfigPath path) {
+        return getLong(toPath(path));
+    }
+
+    default long getLong(ConfigPath path, long def) {
+        return getLong(toPath(path), def);
+    }
+
     boolean isLong(String path);
 
     List<?> getList(String path);
@@ -99,6 +162,31 @@ public interface Section {
 
     List<Map<?, ?>> getMapList(String path);
 
+    // Built on the boxed lists, so implementations that keep primitive arrays should override these
+    default int[] getIntArray(String path) {
+        return getIntegerList(path).stream().mapToInt(Integer::intValue).toArray();
+    }
+
+    default int[] getIntArray(ConfigPath path) {
+        return getIntArray(toPath(path));
+    }
+
+    default long[] getLongArray(String path) {
+        return getLongList(path).stream().mapToLong(Long::longValue).toArray();
+    }
+
+    default long[] getLongArray(ConfigPath path) {
+        return getLongArray(toPath(path));
+    }
+
+    default double[] getDoubleArray(String path) {
+        return getDoubleList(path).stream().mapToDouble(Double::doubleValue).toArray();
+    }
+
+    default double[] getDoubleArray(ConfigPath path) {
+        return getDoubleArray(toPath(path));
+    }
+
     <T> T getObject(String path, Class<T> clazz);
 
     <T> T getObject(String path, Class<T> clazz, T def);
@@ -108,10 +196,18 @@ public interface Section {
     <T extends ConfigSerializable> T getSerializable(String path, Class<T> clazz, T def);
 
     Section getConfigurationSection(String path);
+
+    default Section getConfigurationSection(ConfigPath path) {
+        return getConfigurationSection(toPath(path));
+    }
     
     default Section getSection(String path) {
         return getConfigurationSection(path);
     }
+    
+    default Section getSection(ConfigPath path) {
+        return getConfigurationSection(path);
+    }
 
     boolean isConfigurationSection(String path);
     
@@ -119,6 +215,77 @@ public interface Section {
         return isConfigurationSection(path);
     }
 
+    // The ConfigPath overloads fall back to the String ones, with the keys joined by the separator of the root
+    private String toPath(ConfigPath path) {
+        Config root = getRoot();
+        char separator = root == null ? path.separator() : root.options().pathSeparator();
+        if (separator == path.separator()) {
+            return path.path();
+        }
+
+        StringBuilder builder = new StringBuilder(path.path().length());
+        for (int i = 0; i < path.length(); i++) {
+            if (i > 0) {
+                builder.append(separator);
+            }
+            builder.append(path.key(i));
+        }
+        return builder.toString();
+    }
+
+    // An immutable copy of this section, implementations that do not keep one throw UnsupportedOperationException
+    default ConfigSnapshot snapshot() {
+        throw new UnsupportedOperationException(getClass().getName() + " does not support snapshots");
+    }
+
+    // Visits the set entries under this section in order, defaults are not visited
+    default void walk(ConfigVisitor visitor) {
+        Config root = getRoot();
+        if (root == null) {
+            throw new IllegalStateException("Cannot walk a section without a root");
+        }
+        walk(this, new StringBuilder(), 0, root.options().pathSeparator(), visitor);
+    }
+
+    // Built on getValues, so implementations that can walk their entries directly should override it
+    private static void walk(Section section, StringBuilder path, int depth, char separator, ConfigVisitor visitor) {
+        int length = path.length();
+        for (Map.Entry<String, Object> entry : section.getValues(false).entrySet()) {
+            if (!section.contains(entry.getKey(), true)) {
+                continue;
+            }
+
+            if (length > 0) {
+                path.append(separator);
+            }
+            path.append(entry.getKey());
+            if (visitor.visit(path, depth, entry.getValue()) && entry.getValue() instanceof Section child) {
+                walk(child, path, depth + 1, separator, visitor);
+            }
+            path.setLength(length);
+        }
+    }
+
+    // The set entries under this section with their relative paths, the stream splits well enough to run in parallel
+    default Stream<Map.Entry<String, Object>> entries(boolean deep) {
+        List<Map.Entry<String, Object>> entries = new ArrayList<>();
+        walk((path, depth, value) -> {
+            entries.add(Map.entry(path.toString(), value));
+            return deep;
+        });
+        return entries.stream();
+    }
+
+    // Reads this section into a record or a class with @ConfigKey fields, see ConfigBinder
+    default <T> T bind(Class<T> type) {
+        return ConfigBinder.bind(this, type);
+    }
+
+    // The reverse of bind, sets the keys of this section from the object
+    default void store(Object value) {
+        ConfigBinder.store(this, value);
+    }
+
     Section getDefaultSection();
 
     void addDefault(String path, Object value);
@@ -1,41 +1,357 @@
 package com.stardevllc.config;
 
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.lang.reflect.Array;
+import java.util.AbstractList;
+import java.util.Arrays;
 import java.util.Collections;
 import java.util.List;
+import java.util.Objects;
+import java.util.RandomAccess;
 
 public final class SectionPathData {
 
+    public static final byte OBJECT = 0;
+    public static final byte INT = 1;
+    public static final byte LONG = 2;
+    public static final byte DOUBLE = 3;
+    public static final byte BOOLEAN = 4;
+    public static final byte ARRAY = 5;
+
+    private static final int[] EMPTY_INT_ARRAY = new int[0];
+    private static final long[] EMPTY_LONG_ARRAY = new long[0];
+    private static final double[] EMPTY_DOUBLE_ARRAY = new double[0];
+
+    private static final VarHandle EXTRAS;
+
+    static {
+        try {
+            EXTRAS = MethodHandles.lookup().findVarHandle(SectionPathData.class, "extras", Extras.class);
+        } catch (ReflectiveOperationException e) {
+            throw new ExceptionInInitializerError(e);
+        }
+    }
+
+    // For primitive types this is only a cache of the boxed value and is created on first use, ARRAY entries keep the array here
     private Object data;
-    private List<String> comments;
-    private List<String> inlineComments;
+    private byte type;
+    private long bits;
+    // Most entries have no comments and are never read as arrays, so what is only needed for those lives in here
+    private volatile Extras extras;
 
     public SectionPathData(Object data) {
-        this.data = data;
-        comments = Collections.emptyList();
-        inlineComments = Collections.emptyList();
+        setData(data);
     }
 
     public Object getData() {
+        Object data = this.data;
+        if (data == null) {
+            data = switch (type) {
+                case INT -> (int) bits;
+                case LONG -> bits;
+                case DOUBLE -> Double.longBitsToDouble(bits);
+                case BOOLEAN -> bits != 0;
+                default -> null;
+            };
+            this.data = data;
+        }
         return data;
     }
 
     public void setData(final Object data) {
-        this.data = data;
+        clearArray();
+        if (data instanceof Integer value) {
+            setInt(value);
+        } else if (data instanceof Long value) {
+            setLong(value);
+        } else if (data instanceof Double value) {
+            setDouble(value);
+        } else if (data instanceof Boolean value) {
+            setBoolean(value);
+        } else if (data instanceof PrimitiveList) {
+            this.type = ARRAY;
+            this.bits = 0;
+            this.data = data;
+        } else {
+            this.type = OBJECT;
+            this.bits = 0;
+            this.data = data;
+        }
+    }
+
+    public void setInt(int value) {
+        clearArray();
+        this.type = INT;
+        this.bits = value;
+        this.data = null;
+    }
+
+    public void setLong(long value) {
+        clearArray();
+        this.type = LONG;
+        this.bits = value;
+        this.data = null;
+    }
+
+    public void setDouble(double value) {
+        clearArray();
+        this.type = DOUBLE;
+        this.bits = Double.doubleToRawLongBits(value);
+        this.data = null;
+    }
+
+    public void setBoolean(boolean value) {
+        clearArray();
+        this.type = BOOLEAN;
+        this.bits = value ? 1 : 0;
+        this.data = null;
+    }
+
+    // The raw int[], long[] or double[] of an ARRAY entry
+    Object getArray() {
+        return type == ARRAY ? ((PrimitiveList<?>) data).array : null;
+    }
+
+    // The int[], long[] or double[] the value is made of, either a list made by asList(Object) or an array that was set
+    private Object sourceArray() {
+        if (type == ARRAY) {
+            return ((PrimitiveList<?>) data).array;
+        }
+        Object data = this.data;
+        return data instanceof int[] || data instanceof long[] || data instanceof double[] ? data : null;
+    }
+
+    private void cacheArray(Object array) {
+        Extras current;
+        do {
+            current = extras;
+        } while (!EXTRAS.compareAndSet(this, current, Extras.of(array, current == null ? null : current.comments, current == null ? null : current.inlineComments)));
+    }
+
+    private void clearArray() {
+        if (extras != null && extras.array != null) {
+            cacheArray(null);
+        }
+    }
+
+    public byte getType() {
+        return type;
+    }
+
+    public boolean isNumber() {
+        return type == INT || type == LONG || type == DOUBLE || (type == OBJECT && data instanceof Number);
+    }
+
+    public boolean isBoolean() {
+        return type == BOOLEAN;
+    }
+
+    public int getInt() {
+        return switch (type) {
+            case INT, LONG -> (int) bits;
+            case DOUBLE -> (int) Double.longBitsToDouble(bits);
+            default -> NumberConversions.toInt(data);
+        };
+    }
+
+    public long getLong() {
+        return switch (type) {
+            case INT, LONG -> bits;
+            case DOUBLE -> (long) Double.longBitsToDouble(bits);
+            default -> NumberConversions.toLong(data);
+        };
+    }
+
+    public double getDouble() {
+        return switch (type) {
+            case INT, LONG -> bits;
+            case DOUBLE -> Double.longBitsToDouble(bits);
+            default -> NumberConversions.toDouble(data);
+        };
+    }
+
+    public boolean getBoolean() {
+        return type == BOOLEAN ? bits != 0 : data instanceof Boolean value && value;
+    }
+
+    public boolean isList() {
+        return type == ARRAY || data instanceof List;
+    }
+
+    // Whether the array accessors have anything to read, a list or a primitive array
+    boolean hasElements() {
+        return isList() || sourceArray() != null;
+    }
+
+    // The returned arrays are shared between calls and must not be modified
+    public int[] getIntArray() {
+        return (int[]) primitiveArray(int[].class);
+    }
+
+    public long[] getLongArray() {
+        return (long[]) primitiveArray(long[].class);
+    }
+
+    public double[] getDoubleArray() {
+        return (double[]) primitiveArray(double[].class);
+    }
+
+    // An array of the value in the asked type. Anything that had to be converted is kept until the value changes
+    private Object primitiveArray(Class<?> arrayType) {
+        Object source = sourceArray();
+        if (arrayType.isInstance(source)) {
+            return source;
+        }
+
+        Extras extras = this.extras;
+        if (extras != null && arrayType.isInstance(extras.array)) {
+            return extras.array;
+        }
+
+        Object result;
+        if (source != null) {
+            int length = Array.getLength(source);
+            result = Array.newInstance(arrayType.getComponentType(), length);
+            for (int i = 0; i < length; i++) {
+                store(result, i, (Number) Array.get(source, i));
+            }
+        } else if (data instanceof List<?> list) {
+            Object values = Array.newInstance(arrayType.getComponentType(), list.size());
+            int size = 0;
+            for (Object object : list) {
+                Number number = toNumber(object, arrayType);
+                if (number != null) {
+                    store(values, size++, number);
+                }
+            }
+            result = size == list.size() ? values : copyOf(values, size);
+        } else {
+            return arrayType == int[].class ? EMPTY_INT_ARRAY : arrayType == long[].class ? EMPTY_LONG_ARRAY : EMPTY_DOUBLE_ARRAY;
+        }
+
+        cacheArray(result);
+        return result;
+    }
+
+    private static Number toNumber(Object object, Class<?> arrayType) {
+        if (object instanceof Number number) {
+            return number;
+        } else if (object instanceof Character character) {
+            return (int) character;
+        } else if (object instanceof String string) {
+            try {
+                return arrayType == int[].class ? Integer.valueOf(string) : arrayType == long[].class ? Long.valueOf(string) : Double.valueOf(string);
+            } catch (NumberFormatException ex) {
+                return null;
+            }
+        }
+        return null;
+    }
+
+    private static void store(Object array, int index, Number number) {
+        if (array instanceof int[] values) {
+            values[index] = number.intValue();
+        } else if (array instanceof long[] values) {
+            values[index] = number.longValue();
+        } else {
+            ((double[]) array)[index] = number.doubleValue();
+        }
+    }
+
+    private static Object copyOf(Object array, int length) {
+        if (array instanceof int[] values) {
+            return Arrays.copyOf(values, length);
+        } else if (array instanceof long[] values) {
+            return Arrays.copyOf(values, length);
+        }
+        return Arrays.copyOf((double[]) array, length);
+    }
+
+    /**
+     * A read only list backed by an int[], long[] or double[]. Setting one stores only the array, which is how loaders
+     * keep numeric lists unboxed. Arrays that are set as they are stay arrays.
+     */
+    public static List<?> asList(Object array) {
+        if (!(array instanceof int[] || array instanceof long[] || array instanceof double[])) {
+            throw new IllegalArgumentException("Not an int[], long[] or double[]");
+        }
+        return new PrimitiveList<>(array);
+    }
+
+    private static final class PrimitiveList<T extends Number> extends AbstractList<T> implements RandomAccess {
+        private final Object array;
+        private final int size;
+
+        private PrimitiveList(Object array) {
+            this.array = array;
+            this.size = Array.getLength(array);
+        }
+
+        @Override
+        @SuppressWarnings("unchecked")
+        public T get(int index) {
+            Objects.checkIndex(index, size);
+            if (array instanceof int[] values) {
+                return (T) Integer.valueOf(values[index]);
+            } else if (array instanceof long[] values) {
+                return (T) Long.valueOf(values[index]);
+            }
+            return (T) Double.valueOf(((double[]) array)[index]);
+        }
+
+        @Override
+        public int size() {
+            return size;
+        }
     }
 
     public List<String> getComments() {
-        return comments;
+        Extras extras = this.extras;
+        return extras != null && extras.comments != null ? extras.comments : Collections.emptyList();
     }
-    
+
     public void setComments(final List<String> comments) {
-        this.comments = comments == null ? Collections.emptyList() : Collections.unmodifiableList(comments);
+        List<String> value = comments == null || comments.isEmpty() ? null : Collections.unmodifiableList(comments);
+        Extras current;
+        do {
+            current = extras;
+            if (current == null && value == null) {
+                return;
+            }
+        } while (!EXTRAS.compareAndSet(this, current, Extras.of(current == null ? null : current.array, value, current == null ? null : current.inlineComments)));
     }
-    
+
     public List<String> getInlineComments() {
-        return inlineComments;
+        Extras extras = this.extras;
+        return extras != null && extras.inlineComments != null ? extras.inlineComments : Collections.emptyList();
     }
-    
+
     public void setInlineComments(final List<String> inlineComments) {
-        this.inlineComments = inlineComments == null ? Collections.emptyList() : Collections.unmodifiableList(inlineComments);
+        List<String> value = inlineComments == null || inlineComments.isEmpty() ? null : Collections.unmodifiableList(inlineComments);
+        Extras current;
+        do {
+            current = extras;
+            if (current == null && value == null) {
+                return;
+            }
+        } while (!EXTRAS.compareAndSet(this, current, Extras.of(current == null ? null : current.array, current == null ? null : current.comments, value)));
+    }
+
+    // Never changed once made, updates swap in a new one so a cached array can not undo a comment change and the other way around
+    private static final class Extras {
+        private final Object array;
+        private final List<String> comments;
+        private final List<String> inlineComments;
+
+        private Extras(Object array, List<String> comments, List<String> inlineComments) {
+            this.array = array;
+            this.comments = comments;
+            this.inlineComments = inlineComments;
+        }
+
+        private static Extras of(Object array, List<String> comments, List<String> inlineComments) {
+            return array == null && comments == null && inlineComments == null ? null : new Extras(array, comments, inlineComments);
+        }
     }
 }
@@ -0,0 +1,127 @@
+package com.stardevllc.config;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Spliterator;
+import java.util.function.Consumer;
+
+/*
+ * Goes through the entries of a section, and of its subsections when deep, in the same order as getValues(true). The
+ * entries of a section are copied when it is reached, so splits share them without locking. A split hands out the first
+ * half of the outermost section that still has entries left, together with everything already started inside it.
+ */
+final class SectionSpliterator implements Spliterator<Map.Entry<String, Object>> {
+    private final char separator;
+    private final boolean deep;
+    // Outermost first
+    private final List<Frame> frames;
+
+    SectionSpliterator(Section section, char separator, boolean deep) {
+        this(separator, deep, new ArrayList<>());
+        frames.add(Frame.of(section, ""));
+    }
+
+    private SectionSpliterator(char separator, boolean deep, List<Frame> frames) {
+        this.separator = separator;
+        this.deep = deep;
+        this.frames = frames;
+    }
+
+    @Override
+    public boolean tryAdvance(Consumer<? super Map.Entry<String, Object>> action) {
+        while (!frames.isEmpty()) {
+            Frame frame = frames.getLast();
+            if (frame.index >= frame.end) {
+                frames.removeLast();
+                continue;
+            }
+
+            int index = frame.index++;
+            String path = frame.prefix.isEmpty() ? frame.keys[index] : frame.prefix + separator + frame.keys[index];
+            Object value = frame.values[index];
+            if (deep && value instanceof Section section) {
+                frames.add(Frame.of(section, path));
+            }
+            action.accept(Map.entry(path, value));
+            return true;
+        }
+        return false;
+    }
+
+    @Override
+    public Spliterator<Map.Entry<String, Object>> trySplit() {
+        for (int i = 0; i < frames.size(); i++) {
+            Frame frame = frames.get(i);
+            int remaining = frame.end - frame.index;
+            if (remaining < 2) {
+                continue;
+            }
+
+            int middle = frame.index + remaining / 2;
+            List<Frame> prefix = new ArrayList<>();
+            prefix.add(new Frame(frame.prefix, frame.keys, frame.values, frame.index, middle));
+            while (frames.size() > i + 1) {
+                prefix.add(frames.remove(i + 1));
+            }
+            frame.index = middle;
+            return new SectionSpliterator(separator, deep, prefix);
+        }
+        return null;
+    }
+
+    // Exact for a shallow walk, deep ones only count the entries of the sections already reached
+    @Override
+    public long estimateSize() {
+        long size = 0;
+        for (Frame frame : frames) {
+            size += frame.end - frame.index;
+        }
+        return size;
+    }
+
+    @Override
+    public int characteristics() {
+        return deep ? ORDERED | NONNULL : ORDERED | NONNULL | SIZED | SUBSIZED;
+    }
+
+    private static final class Frame {
+        private final String prefix;
+        private final String[] keys;
+        private final Object[] values;
+        private int index;
+        private int end;
+
+        private Frame(String prefix, String[] keys, Object[] values, int index, int end) {
+            this.prefix = prefix;
+            this.keys = keys;
+            this.values = values;
+            this.index = index;
+            this.end = end;
+        }
+
+        private static Frame of(Section section, String prefix) {
+            String[] keys;
+            Object[] values;
+            if (section instanceof MemorySection memorySection) {
+                Map<String, SectionPathData> map = memorySection.map;
+                keys = new String[map.size()];
+                values = new Object[keys.length];
+                int[] size = new int[1];
+                map.forEach((key, entry) -> {
+                    // A concurrent section may have grown since it was measured
+                    if (size[0] < keys.length) {
+                        keys[size[0]] = key;
+                        values[size[0]++] = entry.getData();
+                    }
+                });
+                return new Frame(prefix, keys, values, 0, size[0]);
+            }
+
+            Map<String, Object> entries = section.getValues(false);
+            keys = entries.keySet().toArray(new String[0]);
+            values = entries.values().toArray();
+            return new Frame(prefix, keys, values, 0, keys.length);
+        }
+    }
+}
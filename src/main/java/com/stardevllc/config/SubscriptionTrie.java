@@ -0,0 +1,150 @@
+package com.stardevllc.config;
+
+import java.util.*;
+
+/*
+ * Listeners stored by the keys of the path they subscribed to. Finding the listeners for a change only walks the keys
+ * of its path, plus whatever is subscribed below it, so the cost does not grow with the number of listeners elsewhere.
+ */
+final class SubscriptionTrie {
+    private final Node root = new Node();
+    private volatile int size;
+    // Batches belong to the thread that opened them, so listeners are still called on the thread that made the change
+    private final ThreadLocal<Batch> batches = new ThreadLocal<>();
+
+    synchronized void add(String path, char separator, ConfigListener listener) {
+        Node node = root;
+        if (!path.isEmpty()) {
+            int i1 = -1, i2;
+            do {
+                i1 = path.indexOf(separator, i2 = i1 + 1);
+                String key = i1 == -1 ? path.substring(i2) : path.substring(i2, i1);
+                node = node.children.computeIfAbsent(key, k -> new Node());
+            } while (i1 != -1);
+        }
+        node.listeners.add(listener);
+        size++;
+    }
+
+    synchronized void remove(String path, char separator, ConfigListener listener) {
+        List<Node> nodes = new ArrayList<>();
+        List<String> keys = new ArrayList<>();
+        Node node = root;
+        if (!path.isEmpty()) {
+            int i1 = -1, i2;
+            do {
+                i1 = path.indexOf(separator, i2 = i1 + 1);
+                String key = i1 == -1 ? path.substring(i2) : path.substring(i2, i1);
+                nodes.add(node);
+                keys.add(key);
+                node = node.children.get(key);
+                if (node == null) {
+                    return;
+                }
+            } while (i1 != -1);
+        }
+        if (node.listeners.remove(listener)) {
+            size--;
+        }
+
+        // Drop the nodes that no longer lead to any listener
+        for (int i = nodes.size() - 1; i >= 0 && node.isEmpty(); i--) {
+            nodes.get(i).children.remove(keys.get(i));
+            node = nodes.get(i);
+        }
+    }
+
+    boolean isEmpty() {
+        return size == 0;
+    }
+
+    // Listeners are never called while the trie is locked, inside a batch they wait for it to end
+    void publish(ConfigChange change, char separator) {
+        Batch batch = batches.get();
+        Map<ConfigListener, List<ConfigChange>> deliveries = batch != null ? batch.deliveries : new LinkedHashMap<>();
+        synchronized (this) {
+            collect(change, separator, deliveries);
+        }
+        if (batch == null && !deliveries.isEmpty()) {
+            deliver(deliveries);
+        }
+    }
+
+    void beginBatch() {
+        Batch batch = batches.get();
+        if (batch == null) {
+            // Nobody to collect for, a listener added before the batch ends hears about the later changes right away
+            if (size == 0) {
+                return;
+            }
+            batch = new Batch();
+            batches.set(batch);
+        }
+        batch.depth++;
+    }
+
+    void endBatch() {
+        Batch batch = batches.get();
+        if (batch == null || --batch.depth > 0) {
+            return;
+        }
+
+        batches.remove();
+        deliver(batch.deliveries);
+    }
+
+    private void collect(ConfigChange change, char separator, Map<ConfigListener, List<ConfigChange>> output) {
+        String path = change.getPath();
+        Node node = root;
+        add(output, node, change);
+        int i1 = -1, i2;
+        do {
+            i1 = path.indexOf(separator, i2 = i1 + 1);
+            node = node.children.get(i1 == -1 ? path.substring(i2) : path.substring(i2, i1));
+            if (node == null) {
+                return;
+            }
+            add(output, node, change);
+        } while (i1 != -1);
+
+        // Whatever was at this path is gone or replaced, so anyone watching below it is affected as well
+        addChildren(output, node, change);
+    }
+
+    private void addChildren(Map<ConfigListener, List<ConfigChange>> output, Node node, ConfigChange change) {
+        for (Node child : node.children.values()) {
+            add(output, child, change);
+            addChildren(output, child, change);
+        }
+    }
+
+    private static void add(Map<ConfigListener, List<ConfigChange>> output, Node node, ConfigChange change) {
+        for (ConfigListener listener : node.listeners) {
+            List<ConfigChange> changes = output.computeIfAbsent(listener, l -> new ArrayList<>());
+            // A listener subscribed at several levels of the same path still gets each change once
+            if (changes.isEmpty() || changes.getLast() != change) {
+                changes.add(change);
+            }
+        }
+    }
+
+    private static void deliver(Map<ConfigListener, List<ConfigChange>> deliveries) {
+        for (Map.Entry<ConfigListener, List<ConfigChange>> entry : deliveries.entrySet()) {
+            entry.getKey().onChange(Collections.unmodifiableList(entry.getValue()));
+        }
+    }
+
+    private static final class Batch {
+        private final Map<ConfigListener, List<ConfigChange>> deliveries = new LinkedHashMap<>();
+        private int depth;
+    }
+
+    private static final class Node {
+        private final Map<String, Node> children = new HashMap<>();
+        private final List<ConfigListener> listeners = new ArrayList<>();
+
+        private boolean isEmpty() {
+            return children.isEmpty() && listeners.isEmpty();
+        }
+    }
+}
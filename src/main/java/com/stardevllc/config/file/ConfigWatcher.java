@@ -0,0 +1,231 @@
+package com.stardevllc.config.file;
+
+import com.stardevllc.config.ConfigChange;
+import com.stardevllc.config.ConfigSnapshot;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.file.*;
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.*;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+import static java.nio.file.StandardWatchEventKinds.*;
+
+/**
+ * Reloads {@link FileConfig}s when their files are changed by something else, like an editor.
+ * <p>
+ * Events for a file are debounced so a burst of writes causes a single reload, which runs on a virtual thread. Only configs
+ * with {@link FileConfig.Options#atomicReload(boolean) atomic reloads} can be watched, so other threads reading the config
+ * see either the old or the new entries. Unsaved changes to a config are lost when its file is reloaded.
+ */
+public final class ConfigWatcher implements Closeable {
+
+    public interface Listener {
+        void onReload(FileConfig config, List<ConfigChange> changes);
+
+        default void onReloadFailed(FileConfig config, Exception exception) {
+        }
+    }
+
+    private final Duration debounce;
+    private final WatchService watchService;
+    private final ScheduledExecutorService scheduler;
+    private final Map<Path, Map<Path, Watched>> watched = new ConcurrentHashMap<>();
+    private final Map<Path, WatchKey> keys = new ConcurrentHashMap<>();
+    private final Thread thread;
+    private volatile boolean closed;
+
+    public ConfigWatcher(Duration debounce) throws IOException {
+        this(FileSystems.getDefault(), debounce);
+    }
+
+    public ConfigWatcher(FileSystem fileSystem, Duration debounce) throws IOException {
+        this.debounce = debounce;
+        this.watchService = fileSystem.newWatchService();
+        this.scheduler = Executors.newSingleThreadScheduledExecutor(Thread.ofVirtual().name("config-watcher-scheduler").factory());
+        this.thread = Thread.ofVirtual().name("config-watcher").start(this::run);
+    }
+
+    public void watch(FileConfig config, Listener listener) throws IOException {
+        Path path = config.file.toPath().toAbsolutePath();
+        Path directory = path.getParent();
+        if (!config.options().atomicReload()) {
+            throw new IllegalArgumentException("Watched configs must use atomic reloads");
+        }
+        // Called by the owner of the config, so the first reload is compared against what it holds now
+        config.publishSnapshot();
+
+        synchronized (keys) {
+            if (!keys.containsKey(directory)) {
+                keys.put(directory, directory.register(watchService, ENTRY_CREATE, ENTRY_MODIFY));
+            }
+            watched.computeIfAbsent(directory, key -> new ConcurrentHashMap<>()).put(path.getFileName(), new Watched(config, listener));
+        }
+    }
+
+    public void unwatch(FileConfig config) {
+        Path path = config.file.toPath().toAbsolutePath();
+        Path directory = path.getParent();
+
+        synchronized (keys) {
+            Map<Path, Watched> files = watched.get(directory);
+            if (files == null) {
+                return;
+            }
+
+            Watched removed = files.remove(path.getFileName());
+            if (removed != null) {
+                removed.cancel();
+            }
+
+            if (files.isEmpty()) {
+                watched.remove(directory);
+                WatchKey key = keys.remove(directory);
+                if (key != null) {
+                    key.cancel();
+                }
+            }
+        }
+    }
+
+    private void run() {
+        while (!closed) {
+            WatchKey key;
+            try {
+                key = watchService.take();
+            } catch (InterruptedException | ClosedWatchServiceException e) {
+                return;
+            }
+
+            Path directory = (Path) key.watchable();
+            Map<Path, Watched> files = watched.get(directory);
+            if (files != null) {
+                for (WatchEvent<?> event : key.pollEvents()) {
+                    if (event.kind() == OVERFLOW) {
+                        // Events were lost, so check every file in the directory
+                        for (Watched entry : files.values()) {
+                            entry.schedule();
+                        }
+                    } else if (files.get((Path) event.context()) instanceof Watched entry) {
+                        entry.schedule();
+                    }
+                }
+            } else {
+                key.pollEvents();
+            }
+            key.reset();
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        closed = true;
+        thread.interrupt();
+        watchService.close();
+        scheduler.shutdownNow();
+        // A reload that already started finishes before this returns, later ones see closed and stop
+        for (Map<Path, Watched> files : watched.values()) {
+            for (Watched entry : files.values()) {
+                entry.awaitReload();
+            }
+        }
+        watched.clear();
+        keys.clear();
+    }
+
+    private final class Watched {
+        private final FileConfig config;
+        private final Listener listener;
+        // Not a monitor, reloads run on virtual threads and a monitor would pin them for the whole load
+        private final ReentrantLock lock = new ReentrantLock();
+        private final Condition idle = lock.newCondition();
+        private ScheduledFuture<?> pending;
+        private Thread reloading;
+
+        private Watched(FileConfig config, Listener listener) {
+            this.config = config;
+            this.listener = listener;
+        }
+
+        private void schedule() {
+            lock.lock();
+            try {
+                if (pending != null) {
+                    pending.cancel(false);
+                }
+                pending = scheduler.schedule(() -> Thread.ofVirtual().name("config-reload").start(this::reload), debounce.toNanos(), TimeUnit.NANOSECONDS);
+            } finally {
+                lock.unlock();
+            }
+        }
+
+        private void cancel() {
+            lock.lock();
+            try {
+                if (pending != null) {
+                    pending.cancel(false);
+                    pending = null;
+                }
+            } finally {
+                lock.unlock();
+            }
+        }
+
+        // A listener that closes the watcher from its own reload does not wait for itself
+        private void awaitReload() {
+            lock.lock();
+            try {
+                while (reloading != null && reloading != Thread.currentThread()) {
+                    idle.awaitUninterruptibly();
+                }
+            } finally {
+                lock.unlock();
+            }
+        }
+
+        private void reload() {
+            // Two reloads of the same config must not overlap, and close() waits for the one in progress
+            lock.lock();
+            try {
+                while (reloading != null) {
+                    idle.awaitUninterruptibly();
+                }
+                // Our own saves and files that were touched without changing are not worth a reload
+                if (closed || !config.isChangedOnDisk()) {
+                    return;
+                }
+                reloading = Thread.currentThread();
+            } finally {
+                lock.unlock();
+            }
+
+            try {
+                List<ConfigChange> changes;
+                try {
+                    ConfigSnapshot before = config.getSnapshot();
+                    config.load();
+                    changes = before.diff(config.getSnapshot());
+                } catch (RuntimeException e) {
+                    listener.onReloadFailed(config, e.getCause() instanceof Exception cause ? cause : e);
+                    return;
+                }
+
+                if (!changes.isEmpty()) {
+                    listener.onReload(config, changes);
+                }
+            } finally {
+                lock.lock();
+                try {
+                    reloading = null;
+                    idle.signalAll();
+                } finally {
+                    lock.unlock();
+                }
+            }
+        }
+    }
+}
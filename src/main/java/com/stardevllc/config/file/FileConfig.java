@@ -1,20 +1,56 @@
 package com.stardevllc.config.file;
 
 import com.stardevllc.config.Config;
+import com.stardevllc.config.ConfigBinaryFormat;
+import com.stardevllc.config.ConfigSnapshot;
+import com.stardevllc.config.Interner;
 import com.stardevllc.config.InvalidConfigException;
 import com.stardevllc.config.MemoryConfig;
+import com.stardevllc.config.Section;
 
 import java.io.*;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
 import java.nio.charset.StandardCharsets;
 import java.nio.file.*;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.nio.file.attribute.FileTime;
+import java.time.Duration;
 import java.util.Collections;
 import java.util.List;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Consumer;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import java.util.zip.CRC32C;
 
+import static java.nio.file.StandardCopyOption.ATOMIC_MOVE;
 import static java.nio.file.StandardCopyOption.REPLACE_EXISTING;
 
 public abstract class FileConfig extends MemoryConfig {
     
+    private static final int CACHE_MAGIC = 0x53434647;
+    private static final int CACHE_FORMAT = 3;
+    private static final int MAX_SAVE_ATTEMPTS = 5;
+    private static final Logger LOGGER = Logger.getLogger(FileConfig.class.getName());
+    
     protected File file;
+    private volatile ConfigSnapshot publishedSnapshot = ConfigSnapshot.EMPTY;
+    private volatile Duration writeBehind;
+    private final AtomicBoolean savePending = new AtomicBoolean();
+    private final AtomicInteger failedSaves = new AtomicInteger();
+    private volatile boolean retriesExhausted;
+    private final ReentrantLock saveLock = new ReentrantLock();
+    private volatile boolean loading;
+    private volatile long savedVersion;
+    // The version right after the last load applied its entries, taken before writers waiting on the load get to run
+    private volatile long loadedVersion;
+    // Size and modification time of the file as of the last load or save, used to tell our own writes from outside edits
+    private volatile long fileSize = -1;
+    private volatile FileTime fileTime;
     
     public FileConfig(File file) {
         super();
@@ -37,38 +73,183 @@ public abstract class FileConfig extends MemoryConfig {
     public void delete() {
         try {
             Files.delete(file.toPath());
+            Files.deleteIfExists(cachePath());
         } catch (IOException e) {
             throw new RuntimeException(e);
         }
     }
     
     public void save() {
+        // A lock rather than synchronized, which would pin the virtual thread of a background save while it writes
+        saveLock.lock();
         try {
             if (this.file == null) {
                 return;
             }
             
-            Path parent = this.file.toPath().getParent();
+            // This writes everything a pending write-behind save would have
+            savePending.set(false);
+            
+            Path target = this.file.toPath();
+            if (options().skipCleanSaves() && !isDirty() && Files.exists(target)) {
+                return;
+            }
+            
+            // Anything changed after this point keeps the config dirty, even if it made it into this save
+            long version = this.version;
+            Path parent = target.toAbsolutePath().getParent();
             if (parent != null) {
                 if (!Files.exists(parent)) {
                     Files.createDirectories(parent);
                 }
             }
             
-            if (!file.exists()) {
-                file.createNewFile();
-            }
-            
-            String data = saveToString();
-            
-            try (Writer writer = new OutputStreamWriter(new FileOutputStream(file), StandardCharsets.UTF_8)) {
-                writer.write(data);
+            // Write everything to a temporary file first so a crash never leaves a truncated config behind
+            Path temp = target.resolveSibling(target.getFileName() + ".tmp");
+            try {
+                try (FileOutputStream stream = new FileOutputStream(temp.toFile());
+                     Writer writer = new BufferedWriter(new OutputStreamWriter(stream, StandardCharsets.UTF_8))) {
+                    save(writer);
+                    writer.flush();
+                    stream.getFD().sync();
+                }
+                
+                try {
+                    Files.move(temp, target, REPLACE_EXISTING, ATOMIC_MOVE);
+                } catch (AtomicMoveNotSupportedException e) {
+                    Files.move(temp, target, REPLACE_EXISTING);
+                }
+                savedVersion = version;
+                recordFileState(target);
+            } finally {
+                Files.deleteIfExists(temp);
             }
         } catch (Exception e) {
             throw new RuntimeException(e);
+        } finally {
+            saveLock.unlock();
+        }
+    }
+    
+    // True if anything changed since this config was last loaded from or saved to its file
+    public boolean isDirty() {
+        return version != savedVersion;
+    }
+    
+    // Writes out the changes still waiting for the write-behind interval
+    public void flush() {
+        if (savePending.getAndSet(false) || retriesExhausted) {
+            try {
+                save();
+                failedSaves.set(0);
+                retriesExhausted = false;
+            } catch (RuntimeException e) {
+                retrySave(e);
+                throw e;
+            }
         }
     }
     
+    // Each retry waits twice as long as the one before, after MAX_SAVE_ATTEMPTS the changes wait for the next change or flush
+    private void retrySave(RuntimeException failure) {
+        Duration interval = writeBehind;
+        int failures = failedSaves.incrementAndGet();
+        if (interval == null) {
+            return;
+        }
+        
+        if (failures >= MAX_SAVE_ATTEMPTS) {
+            failedSaves.set(0);
+            retriesExhausted = true;
+            LOGGER.log(Level.SEVERE, "Could not save " + file + " after " + failures + " attempts, trying again on the next change", failure);
+            return;
+        }
+        scheduleSave(interval.multipliedBy(1L << failures));
+    }
+    
+    // Flushes every config in write-behind mode, this also runs on shutdown
+    public static void flushAll() {
+        SaveScheduler.flushAll();
+    }
+    
+    void writeBehindSave() {
+        try {
+            flush();
+        } catch (RuntimeException e) {
+            // flush() already scheduled the retry or logged that it gave up, there is no one else to report this to
+        }
+    }
+    
+    private void scheduleSave() {
+        Duration interval = writeBehind;
+        if (interval != null) {
+            scheduleSave(interval);
+        }
+    }
+    
+    private void scheduleSave(Duration delay) {
+        if (savePending.compareAndSet(false, true)) {
+            SaveScheduler.schedule(this, delay);
+        }
+    }
+    
+    @Override
+    protected void markModified() {
+        super.markModified();
+        if (writeBehind != null && !loading) {
+            scheduleSave();
+        }
+    }
+    
+    protected void setWriteBehind(Duration interval) {
+        if (interval != null) {
+            if (interval.isNegative()) {
+                throw new IllegalArgumentException("Write-behind interval cannot be negative");
+            }
+            
+            if (writeLock == null) {
+                writeLock = new ReentrantLock();
+            }
+            writeBehind = interval;
+            SaveScheduler.register(this);
+        } else if (writeBehind != null) {
+            writeBehind = null;
+            SaveScheduler.unregister(this);
+            flush();
+            writeLock = null;
+        }
+    }
+    
+    // Loads apply their entries while holding the write lock so a background save never writes out a half loaded tree,
+    // listeners hear about the whole load at once after that
+    protected Lock beginLoad() {
+        beginBatch();
+        Lock lock = writeLock;
+        if (lock != null) {
+            lock.lock();
+        }
+        loading = true;
+        return lock;
+    }
+    
+    protected void endLoad(Lock lock) {
+        loading = false;
+        if (lock != null) {
+            lock.unlock();
+        }
+        endBatch();
+    }
+    
+    public void save(OutputStream stream) throws IOException {
+        Writer writer = new BufferedWriter(new OutputStreamWriter(stream, StandardCharsets.UTF_8));
+        save(writer);
+        writer.flush();
+    }
+    
+    public void save(Writer writer) throws IOException {
+        writer.write(saveToString());
+    }
+    
     protected abstract String saveToString();
     
     public void load() {
@@ -88,15 +269,201 @@ public abstract class FileConfig extends MemoryConfig {
                 file.createNewFile();
             }
             
-            final FileInputStream stream = new FileInputStream(file);
-            
-            load(new InputStreamReader(stream, StandardCharsets.UTF_8));
+            Path path = file.toPath();
+            recordFileState(path);
+            if (!options().binaryCache() || !loadCache(path)) {
+                load(path);
+                if (options().binaryCache()) {
+                    writeCache(path);
+                }
+            }
+            savedVersion = loadedVersion;
         } catch (Exception e) {
             throw new RuntimeException(e);
         }
     }
     
-    protected void load(Reader reader) throws IOException, InvalidConfigException {
+    private Path cachePath() {
+        Path path = file.toPath();
+        return path.resolveSibling(path.getFileName() + ".cache");
+    }
+    
+    // Anything that changes how a file is turned into entries, a cache written with other settings is not used
+    protected int cacheSettings() {
+        return options().parseComments() ? 1 : 0;
+    }
+    
+    private static long checksum(Path path) throws IOException {
+        CRC32C checksum = new CRC32C();
+        try (InputStream stream = Files.newInputStream(path)) {
+            byte[] buffer = new byte[65536];
+            int read;
+            while ((read = stream.read(buffer)) != -1) {
+                checksum.update(buffer, 0, read);
+            }
+        }
+        return checksum.getValue();
+    }
+    
+    private boolean loadCache(Path source) {
+        Path cache = cachePath();
+        if (!Files.exists(cache)) {
+            return false;
+        }
+        
+        try {
+            ByteBuffer in = ByteBuffer.wrap(Files.readAllBytes(cache));
+            if (in.getInt() != CACHE_MAGIC || in.getInt() != CACHE_FORMAT || in.getInt() != cacheSettings()
+                    || in.getLong() != fileSize || in.getLong() != fileTime.toMillis() || in.getLong() != checksum(source)) {
+                return false;
+            }
+            
+            // The checksum of the source only says which file the cache is for, this one that the cache itself is intact
+            long payloadChecksum = in.getLong();
+            CRC32C checksum = new CRC32C();
+            checksum.update(in.duplicate());
+            if (checksum.getValue() != payloadChecksum) {
+                return false;
+            }
+            
+            List<String> header = ConfigBinaryFormat.readStrings(in);
+            List<String> footer = ConfigBinaryFormat.readStrings(in);
+            // Always staged, so a cache that still fails halfway leaves the entries as they were for the parse that follows
+            loadEntries(section -> {
+                try {
+                    ConfigBinaryFormat.readSection(in, section);
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+                options().setHeader(header);
+                options().setFooter(footer);
+            }, true);
+            return true;
+        } catch (IOException | RuntimeException e) {
+            // A broken or outdated cache just means parsing the file again
+            return false;
+        }
+    }
+    
+    private void writeCache(Path source) {
+        Path cache = cachePath();
+        Path temp = cache.resolveSibling(cache.getFileName() + ".tmp");
+        try {
+            long size = fileSize;
+            FileTime time = fileTime;
+            long checksum = checksum(source);
+            ByteArrayOutputStream payload = new ByteArrayOutputStream();
+            DataOutputStream payloadOut = new DataOutputStream(payload);
+            ConfigBinaryFormat.writeStrings(options().getHeader(), payloadOut);
+            ConfigBinaryFormat.writeStrings(options().getFooter(), payloadOut);
+            ConfigBinaryFormat.writeSection(this, payloadOut);
+            CRC32C payloadChecksum = new CRC32C();
+            payloadChecksum.update(payload.toByteArray());
+            
+            try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(temp)))) {
+                out.writeInt(CACHE_MAGIC);
+                out.writeInt(CACHE_FORMAT);
+                out.writeInt(cacheSettings());
+                out.writeLong(size);
+                out.writeLong(time.toMillis());
+                out.writeLong(checksum);
+                out.writeLong(payloadChecksum.getValue());
+                payload.writeTo(out);
+            }
+            
+            // The file may have changed while it was being loaded, then the cache would not match what it says it is for
+            BasicFileAttributes attributes = Files.readAttributes(source, BasicFileAttributes.class);
+            if (attributes.size() == size && attributes.lastModifiedTime().equals(time)) {
+                Files.move(temp, cache, REPLACE_EXISTING);
+            }
+        } catch (IOException | RuntimeException e) {
+            // The cache is only an optimization, the config itself loaded fine
+        } finally {
+            try {
+                Files.deleteIfExists(temp);
+            } catch (IOException ignored) {
+            }
+        }
+    }
+    
+    // Replaces the entries of this config with whatever the loader puts into the section it is given
+    protected void loadEntries(Consumer<Section> loader) {
+        loadEntries(loader, options().atomicReload());
+    }
+    
+    private void loadEntries(Consumer<Section> loader, boolean atomic) {
+        Lock lock = beginLoad();
+        try {
+            if (atomic) {
+                replaceEntries(loader);
+            } else {
+                clearEntries();
+                loader.accept(this);
+            }
+            loadedVersion = version;
+        } finally {
+            endLoad(lock);
+        }
+        publishSnapshot();
+    }
+    
+    private void recordFileState(Path path) {
+        try {
+            BasicFileAttributes attributes = Files.readAttributes(path, BasicFileAttributes.class);
+            fileSize = attributes.size();
+            fileTime = attributes.lastModifiedTime();
+        } catch (IOException e) {
+            fileSize = -1;
+            fileTime = null;
+        }
+    }
+    
+    // True if the file no longer looks like it did after the last load or save
+    public boolean isChangedOnDisk() {
+        if (file == null) {
+            return false;
+        }
+        
+        try {
+            BasicFileAttributes attributes = Files.readAttributes(file.toPath(), BasicFileAttributes.class);
+            return attributes.size() != fileSize || !attributes.lastModifiedTime().equals(fileTime);
+        } catch (IOException e) {
+            return fileTime != null;
+        }
+    }
+    
+    // Safe to call from any thread, returns the snapshot published by the last load or publishSnapshot() call, which is
+    // empty until the config is first loaded
+    public ConfigSnapshot getSnapshot() {
+        return publishedSnapshot;
+    }
+    
+    // Must be called from the thread that modifies this config
+    public ConfigSnapshot publishSnapshot() {
+        ConfigSnapshot snapshot = snapshot();
+        publishedSnapshot = snapshot;
+        return snapshot;
+    }
+    
+    public void load(Path path) throws IOException, InvalidConfigException {
+        if (options().memoryMapped()) {
+            try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ);
+                 Reader reader = new MappedFileReader(channel)) {
+                load(reader);
+            }
+            return;
+        }
+        
+        try (InputStream stream = Files.newInputStream(path)) {
+            load(stream);
+        }
+    }
+    
+    public void load(InputStream stream) throws IOException, InvalidConfigException {
+        load(new InputStreamReader(stream, StandardCharsets.UTF_8));
+    }
+    
+    public void load(Reader reader) throws IOException, InvalidConfigException {
         BufferedReader input = reader instanceof BufferedReader ? (BufferedReader) reader : new BufferedReader(reader);
         
         StringBuilder builder = new StringBuilder();
@@ -140,6 +507,11 @@ public abstract class FileConfig extends MemoryConfig {
         private List<String> header = Collections.emptyList();
         private List<String> footer = Collections.emptyList();
         private boolean parseComments = true;
+        private boolean atomicReload;
+        private Duration writeBehind;
+        private boolean memoryMapped;
+        private boolean binaryCache;
+        private boolean skipCleanSaves;
         
         protected Options(MemoryConfig configuration) {
             super(configuration);
@@ -162,12 +534,25 @@ public abstract class FileConfig extends MemoryConfig {
             return this;
         }
         
+        @Override
+        public Options pathIndex(boolean value) {
+            super.pathIndex(value);
+            return this;
+        }
+
+        @Override
+        public Options interner(Interner value) {
+            super.interner(value);
+            return this;
+        }
+        
         public List<String> getHeader() {
             return header;
         }
         
         public Options setHeader(List<String> value) {
             this.header = value == null ? Collections.emptyList() : Collections.unmodifiableList(value);
+            configuration().markModified();
             return this;
         }
         
@@ -177,6 +562,7 @@ public abstract class FileConfig extends MemoryConfig {
         
         public Options setFooter(List<String> value) {
             this.footer = value == null ? Collections.emptyList() : Collections.unmodifiableList(value);
+            configuration().markModified();
             return this;
         }
         
@@ -186,6 +572,60 @@ public abstract class FileConfig extends MemoryConfig {
         
         public Options parseComments(boolean value) {
             parseComments = value;
+            configuration().markModified();
+            return this;
+        }
+        
+        public boolean atomicReload() {
+            return atomicReload;
+        }
+        
+        public Options atomicReload(boolean value) {
+            atomicReload = value;
+            return this;
+        }
+        
+        public boolean skipCleanSaves() {
+            return skipCleanSaves;
+        }
+        
+        // save() does nothing while isDirty() is false. Changes made without going through the config, like editing a
+        // list returned by getList or the defaults config itself, are not seen, so only turn this on if nothing does that
+        public Options skipCleanSaves(boolean value) {
+            this.skipCleanSaves = value;
+            return this;
+        }
+        
+        public boolean binaryCache() {
+            return binaryCache;
+        }
+        
+        // Loads keep a binary copy of the parsed entries next to the file and use it while the file is unchanged
+        public Options binaryCache(boolean value) {
+            this.binaryCache = value;
+            return this;
+        }
+        
+        public boolean memoryMapped() {
+            return memoryMapped;
+        }
+        
+        // Loads decode the file from a memory mapping of it instead of reading it through a stream. The mapping is only
+        // released once it is garbage collected, which on Windows keeps the file from being replaced until then
+        public Options memoryMapped(boolean value) {
+            this.memoryMapped = value;
+            return this;
+        }
+        
+        public Duration writeBehind() {
+            return writeBehind;
+        }
+        
+        // Changes are saved in the background one interval after the first change since the last save, so a burst of
+        // changes is written once. save() itself still writes right away and flush() writes a pending save now. null turns it off
+        public Options writeBehind(Duration value) {
+            configuration().setWriteBehind(value);
+            writeBehind = value;
             return this;
         }
     }
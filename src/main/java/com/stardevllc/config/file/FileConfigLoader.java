@@ -0,0 +1,107 @@
+package com.stardevllc.config.file;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.function.Function;
+
+/**
+ * Loads many config files at once, each on its own virtual thread. A file that fails to load does not stop the others,
+ * its error is part of its {@link LoadResult}.
+ */
+public final class FileConfigLoader {
+    // Keeps thousands of loads from holding thousands of open files at the same time
+    private static final int MAX_CONCURRENT_LOADS = Math.max(16, Runtime.getRuntime().availableProcessors() * 2);
+
+    private FileConfigLoader() {
+    }
+
+    public static <T extends FileConfig> List<LoadResult<T>> loadAll(Collection<File> files, Function<File, T> factory) {
+        try (ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor()) {
+            Map<File, CompletableFuture<T>> futures = loadAsync(files, factory, executor);
+
+            List<LoadResult<T>> results = new ArrayList<>(futures.size());
+            for (Map.Entry<File, CompletableFuture<T>> entry : futures.entrySet()) {
+                try {
+                    results.add(new LoadResult<>(entry.getKey(), entry.getValue().join(), null));
+                } catch (CompletionException e) {
+                    results.add(new LoadResult<>(entry.getKey(), null, unwrap(e)));
+                }
+            }
+            return results;
+        }
+    }
+
+    public static <T extends FileConfig> List<LoadResult<T>> loadDirectory(Path directory, String glob, Function<File, T> factory) throws IOException {
+        List<File> files = new ArrayList<>();
+        try (DirectoryStream<Path> stream = Files.newDirectoryStream(directory, glob)) {
+            for (Path path : stream) {
+                if (Files.isRegularFile(path)) {
+                    files.add(path.toFile());
+                }
+            }
+        }
+        return loadAll(files, factory);
+    }
+
+    // The futures are in the same order as the files
+    public static <T extends FileConfig> Map<File, CompletableFuture<T>> loadAsync(Collection<File> files, Function<File, T> factory, Executor executor) {
+        Semaphore permits = new Semaphore(MAX_CONCURRENT_LOADS);
+        Map<File, CompletableFuture<T>> futures = new LinkedHashMap<>();
+        for (File file : files) {
+            futures.put(file, CompletableFuture.supplyAsync(() -> {
+                permits.acquireUninterruptibly();
+                try {
+                    T config = factory.apply(file);
+                    config.load();
+                    return config;
+                } finally {
+                    permits.release();
+                }
+            }, executor));
+        }
+        return futures;
+    }
+
+    private static Exception unwrap(CompletionException e) {
+        Throwable cause = e.getCause();
+        // FileConfig.load() wraps whatever went wrong
+        if (cause instanceof RuntimeException && cause.getClass() == RuntimeException.class && cause.getCause() instanceof Exception inner) {
+            return inner;
+        }
+        return cause instanceof Exception exception ? exception : e;
+    }
+
+    public static final class LoadResult<T extends FileConfig> {
+        private final File file;
+        private final T config;
+        private final Exception error;
+
+        private LoadResult(File file, T config, Exception error) {
+            this.file = file;
+            this.config = config;
+            this.error = error;
+        }
+
+        public File getFile() {
+            return file;
+        }
+
+        public boolean isSuccess() {
+            return error == null;
+        }
+
+        // Null if the file failed to load
+        public T getConfig() {
+            return config;
+        }
+
+        public Exception getError() {
+            return error;
+        }
+    }
+}
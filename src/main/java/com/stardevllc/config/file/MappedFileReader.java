@@ -0,0 +1,116 @@
+package com.stardevllc.config.file;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.nio.CharBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+import java.nio.charset.CharsetDecoder;
+import java.nio.charset.CoderResult;
+import java.nio.charset.CodingErrorAction;
+import java.nio.charset.StandardCharsets;
+
+/*
+ * Decodes a file straight out of memory mapped windows of it. Bytes of a character split between two windows are
+ * mapped again as the start of the next one. Like UnicodeReader, a byte order mark picks the charset and is skipped.
+ */
+final class MappedFileReader extends Reader {
+    private static final long WINDOW_SIZE = 64L * 1024 * 1024;
+
+    private final FileChannel channel;
+    private final long size;
+    private final CharsetDecoder decoder;
+    private final CharBuffer chars = CharBuffer.allocate(8192).flip();
+    private MappedByteBuffer window;
+    private long windowStart;
+    private boolean done;
+
+    MappedFileReader(FileChannel channel) throws IOException {
+        this.channel = channel;
+        this.size = channel.size();
+
+        map(0);
+        Charset charset = StandardCharsets.UTF_8;
+        int skip = 0;
+        if (startsWith(0xEF, 0xBB, 0xBF)) {
+            skip = 3;
+        } else if (startsWith(0xFE, 0xFF)) {
+            charset = StandardCharsets.UTF_16BE;
+            skip = 2;
+        } else if (startsWith(0xFF, 0xFE)) {
+            charset = StandardCharsets.UTF_16LE;
+            skip = 2;
+        }
+        window.position(skip);
+
+        this.decoder = charset.newDecoder().onMalformedInput(CodingErrorAction.REPLACE).onUnmappableCharacter(CodingErrorAction.REPLACE);
+    }
+
+    private boolean startsWith(int... bytes) {
+        if (window.limit() < bytes.length) {
+            return false;
+        }
+
+        for (int i = 0; i < bytes.length; i++) {
+            if ((window.get(i) & 0xFF) != bytes[i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private void map(long start) throws IOException {
+        windowStart = start;
+        window = channel.map(FileChannel.MapMode.READ_ONLY, start, Math.min(WINDOW_SIZE, size - start));
+    }
+
+    private boolean isLastWindow() {
+        return windowStart + window.limit() >= size;
+    }
+
+    private void fill() throws IOException {
+        chars.clear();
+        while (chars.position() == 0 && !done) {
+            boolean last = isLastWindow();
+            CoderResult result = decoder.decode(window, chars, last);
+            if (result.isError()) {
+                result.throwException();
+            }
+
+            if (result.isUnderflow()) {
+                if (last) {
+                    decoder.flush(chars);
+                    done = true;
+                } else {
+                    map(windowStart + window.position());
+                }
+            }
+        }
+        chars.flip();
+    }
+
+    @Override
+    public int read(char[] buffer, int offset, int length) throws IOException {
+        if (length == 0) {
+            return 0;
+        }
+
+        if (!chars.hasRemaining()) {
+            fill();
+            if (!chars.hasRemaining()) {
+                return -1;
+            }
+        }
+
+        int count = Math.min(length, chars.remaining());
+        chars.get(buffer, offset, count);
+        return count;
+    }
+
+    @Override
+    public void close() throws IOException {
+        window = null;
+        channel.close();
+    }
+}
@@ -0,0 +1,63 @@
+package com.stardevllc.config.file;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Set;
+import java.util.WeakHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/*
+ * Runs the delayed saves of configs in write-behind mode. The scheduler thread only waits, each save runs on its own
+ * virtual thread so a slow disk never holds up the saves of other configs.
+ */
+final class SaveScheduler {
+    private static final ScheduledExecutorService SCHEDULER = Executors.newSingleThreadScheduledExecutor(Thread.ofVirtual().name("config-save-scheduler").factory());
+    private static final Set<FileConfig> CONFIGS = Collections.synchronizedSet(Collections.newSetFromMap(new WeakHashMap<>()));
+
+    static {
+        Runtime.getRuntime().addShutdownHook(new Thread(SaveScheduler::flushAll, "config-save-shutdown"));
+    }
+
+    private SaveScheduler() {
+    }
+
+    static void register(FileConfig config) {
+        CONFIGS.add(config);
+    }
+
+    static void unregister(FileConfig config) {
+        CONFIGS.remove(config);
+    }
+
+    static void schedule(FileConfig config, Duration delay) {
+        SCHEDULER.schedule(() -> Thread.ofVirtual().name("config-save").start(config::writeBehindSave), delay.toNanos(), TimeUnit.NANOSECONDS);
+    }
+
+    static void flushAll() {
+        List<FileConfig> configs;
+        synchronized (CONFIGS) {
+            configs = new ArrayList<>(CONFIGS);
+        }
+
+        RuntimeException failure = null;
+        for (FileConfig config : configs) {
+            try {
+                config.flush();
+            } catch (RuntimeException e) {
+                if (failure == null) {
+                    failure = e;
+                } else {
+                    failure.addSuppressed(e);
+                }
+            }
+        }
+
+        if (failure != null) {
+            throw failure;
+        }
+    }
+}
@@ -1,12 +1,14 @@
 package com.stardevllc.config.file.yaml;
 
+import com.stardevllc.config.MemorySection;
 import com.stardevllc.config.Section;
+import com.stardevllc.config.SectionPathData;
+import com.stardevllc.config.Interner;
 import com.stardevllc.config.InvalidConfigException;
 import com.stardevllc.config.file.FileConfig;
+import com.stardevllc.config.file.FileConfigLoader;
 import com.stardevllc.config.serialization.ConfigSerialization;
 import org.yaml.snakeyaml.DumperOptions;
-import org.yaml.snakeyaml.LoaderOptions;
-import org.yaml.snakeyaml.Yaml;
 import org.yaml.snakeyaml.comments.CommentLine;
 import org.yaml.snakeyaml.comments.CommentType;
 import org.yaml.snakeyaml.error.YAMLException;
@@ -14,65 +16,96 @@ import org.yaml.snakeyaml.nodes.*;
 import org.yaml.snakeyaml.reader.UnicodeReader;
 
 import java.io.*;
-import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.time.Duration;
 import java.util.ArrayList;
+import java.util.Collection;
 import java.util.LinkedList;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.locks.Lock;
 
 public class YamlConfig extends FileConfig {
-    private final DumperOptions yamlDumperOptions;
-    private final LoaderOptions yamlLoaderOptions;
-    private final YamlConstructor constructor;
-    private final YamlRepresenter representer;
-    private final Yaml yaml;
-    
     public YamlConfig(File file) {
         super(file);
-        yamlDumperOptions = new DumperOptions();
-        yamlDumperOptions.setDefaultFlowStyle(DumperOptions.FlowStyle.BLOCK);
-        yamlLoaderOptions = new LoaderOptions();
-        yamlLoaderOptions.setMaxAliasesForCollections(Integer.MAX_VALUE);
-        yamlLoaderOptions.setCodePointLimit(Integer.MAX_VALUE);
-        yamlLoaderOptions.setNestingDepthLimit(100);
-        
-        constructor = new YamlConstructor(yamlLoaderOptions);
-        representer = new YamlRepresenter(yamlDumperOptions);
-        representer.setDefaultFlowStyle(DumperOptions.FlowStyle.BLOCK);
-        
-        yaml = new Yaml(constructor, representer, yamlDumperOptions, yamlLoaderOptions);
     }
     
     @Override
     protected String saveToString() {
-        yamlDumperOptions.setIndent(options().indent());
-        yamlDumperOptions.setWidth(options().width());
-        yamlDumperOptions.setProcessComments(options().parseComments());
-        
-        MappingNode node = toNodeTree(this);
-        
-        node.setBlockComments(getCommentLines(saveHeader(options().getHeader()), CommentType.BLOCK));
-        node.setEndComments(getCommentLines(options().getFooter(), CommentType.BLOCK));
-        
         StringWriter writer = new StringWriter();
-        if (node.getBlockComments().isEmpty() && node.getEndComments().isEmpty() && node.getValue().isEmpty()) {
-            writer.write("");
-        } else {
-            if (node.getValue().isEmpty()) {
-                node.setFlowStyle(DumperOptions.FlowStyle.FLOW);
-            }
-            yaml.serialize(node, writer);
+        try {
+            save(writer);
+        } catch (IOException e) {
+            throw new RuntimeException(e);
         }
         return writer.toString();
     }
     
     @Override
-    protected void loadFromString(String contents) throws InvalidConfigException {
-        yamlLoaderOptions.setProcessComments(options().parseComments());
+    public void save(Writer writer) throws IOException {
+        YamlEngine engine = YamlEngine.borrow(options());
+        try {
+            save(engine, writer);
+        } finally {
+            engine.release();
+        }
+    }
+    
+    private void save(YamlEngine engine, Writer writer) throws IOException {
+        MappingNode node;
+        Lock lock = writeLock;
+        if (lock != null) {
+            lock.lock();
+        }
+        try {
+            node = toNodeTree(engine, this);
+            
+            node.setBlockComments(getCommentLines(saveHeader(options().getHeader()), CommentType.BLOCK));
+            node.setEndComments(getCommentLines(options().getFooter(), CommentType.BLOCK));
+        } finally {
+            if (lock != null) {
+                lock.unlock();
+            }
+        }
+        
+        if (node.getBlockComments().isEmpty() && node.getEndComments().isEmpty() && node.getValue().isEmpty()) {
+            return;
+        }
         
+        if (node.getValue().isEmpty()) {
+            node.setFlowStyle(DumperOptions.FlowStyle.FLOW);
+        }
+        engine.yaml.serialize(node, writer);
+    }
+    
+    @Override
+    protected void loadFromString(String contents) throws InvalidConfigException {
+        try {
+            load(new StringReader(contents));
+        } catch (IOException e) {
+            throw new InvalidConfigException(e);
+        }
+    }
+    
+    @Override
+    public void load(InputStream stream) throws IOException, InvalidConfigException {
+        load(new UnicodeReader(stream));
+    }
+    
+    @Override
+    public void load(Reader reader) throws IOException, InvalidConfigException {
+        YamlEngine engine = YamlEngine.borrow(options());
+        try {
+            load(engine, reader);
+        } finally {
+            engine.release();
+        }
+    }
+    
+    private void load(YamlEngine engine, Reader reader) throws IOException, InvalidConfigException {
         MappingNode node;
-        try (Reader reader = new UnicodeReader(new ByteArrayInputStream(contents.getBytes(StandardCharsets.UTF_8)))) {
-            Node rawNode = yaml.compose(reader);
+        try (reader) {
+            Node rawNode = engine.yaml.compose(reader);
             try {
                 node = (MappingNode) rawNode;
             } catch (ClassCastException e) {
@@ -82,14 +115,17 @@ public class YamlConfig extends FileConfig {
             throw new InvalidConfigException(e);
         }
         
-        this.map.clear();
-        
-        if (node != null) {
-            adjustNodeComments(node);
-            options().setHeader(loadHeader(getCommentLines(node.getBlockComments())));
-            options().setFooter(getCommentLines(node.getEndComments()));
-            fromNodeTree(node, this);
-        }
+        // The path index needs every entry right away, so there is no point in deferring them
+        boolean lazy = options().lazySections() && !isPathIndexed();
+        final MappingNode root = node;
+        loadEntries(section -> {
+            if (root != null) {
+                adjustNodeComments(root);
+                options().setHeader(loadHeader(getCommentLines(root.getBlockComments())));
+                options().setFooter(getCommentLines(root.getEndComments()));
+                fromNodeTree(engine, root, section, lazy);
+            }
+        });
     }
     
     private void adjustNodeComments(final MappingNode node) {
@@ -111,7 +147,8 @@ public class YamlConfig extends FileConfig {
         }
     }
     
-    private void fromNodeTree(MappingNode input, Section section) {
+    private void fromNodeTree(YamlEngine engine, MappingNode input, Section section, boolean lazy) {
+        YamlConstructor constructor = engine.constructor;
         constructor.flattenMapping(input);
         for (NodeTuple nodeTuple : input.getValue()) {
             Node key = nodeTuple.getKeyNode();
@@ -122,10 +159,25 @@ public class YamlConfig extends FileConfig {
                 value = ((AnchorNode) value).getRealNode();
             }
             
-            if (value instanceof MappingNode && !hasSerializedTypeKey((MappingNode) value)) {
-                fromNodeTree((MappingNode) value, section.createSection(keyString));
+            if (value instanceof MappingNode mapping && !hasSerializedTypeKey(mapping)) {
+                Section child = section.createSection(keyString);
+                if (lazy && child instanceof MemorySection memorySection) {
+                    deferEntries(memorySection, deferred -> {
+                        // The engine of the load is back in the pool by the time this runs
+                        YamlEngine lazyEngine = YamlEngine.borrow(options());
+                        try {
+                            fromNodeTree(lazyEngine, mapping, deferred, true);
+                        } finally {
+                            lazyEngine.release();
+                        }
+                    });
+                } else {
+                    fromNodeTree(engine, mapping, child, false);
+                }
+            } else if (value instanceof SequenceNode && options().primitiveArrays()) {
+                section.set(keyString, toPrimitiveArray((List<?>) constructor.construct(value)));
             } else {
-                section.set(keyString, constructor.construct(value));
+                section.set(keyString, internElements(constructor.construct(value)));
             }
             
             section.setComments(keyString, getCommentLines(key.getBlockComments()));
@@ -137,6 +189,50 @@ public class YamlConfig extends FileConfig {
         }
     }
     
+    // Set only interns plain strings, so the strings inside lists that were just loaded are interned here
+    @SuppressWarnings("unchecked")
+    private Object internElements(Object value) {
+        if (getInterner() != null && value instanceof List<?> list) {
+            ((List<Object>) list).replaceAll(this::internValue);
+        }
+        return value;
+    }
+    
+    private Object toPrimitiveArray(List<?> list) {
+        if (list.isEmpty()) {
+            return list;
+        }
+
+        boolean ints = true, longs = true, doubles = true;
+        for (Object object : list) {
+            ints &= object instanceof Integer;
+            longs &= object instanceof Integer || object instanceof Long;
+            doubles &= object instanceof Double;
+        }
+
+        if (ints) {
+            int[] array = new int[list.size()];
+            for (int i = 0; i < array.length; i++) {
+                array[i] = (Integer) list.get(i);
+            }
+            return SectionPathData.asList(array);
+        } else if (longs) {
+            long[] array = new long[list.size()];
+            for (int i = 0; i < array.length; i++) {
+                array[i] = ((Number) list.get(i)).longValue();
+            }
+            return SectionPathData.asList(array);
+        } else if (doubles) {
+            double[] array = new double[list.size()];
+            for (int i = 0; i < array.length; i++) {
+                array[i] = (Double) list.get(i);
+            }
+            return SectionPathData.asList(array);
+        }
+
+        return list;
+    }
+    
     private boolean hasSerializedTypeKey(MappingNode node) {
         for (NodeTuple nodeTuple : node.getValue()) {
             Node keyNode = nodeTuple.getKeyNode();
@@ -151,15 +247,15 @@ public class YamlConfig extends FileConfig {
         return false;
     }
     
-    private MappingNode toNodeTree(Section section) {
+    private MappingNode toNodeTree(YamlEngine engine, Section section) {
         List<NodeTuple> nodeTuples = new ArrayList<>();
         for (Map.Entry<String, Object> entry : section.getValues(false).entrySet()) {
-            Node key = representer.represent(entry.getKey());
+            Node key = engine.representer.represent(entry.getKey());
             Node value;
             if (entry.getValue() instanceof Section) {
-                value = toNodeTree((Section) entry.getValue());
+                value = toNodeTree(engine, (Section) entry.getValue());
             } else {
-                value = representer.represent(entry.getValue());
+                value = engine.representer.represent(entry.getValue());
             }
             key.setBlockComments(getCommentLines(section.getComments(entry.getKey()), CommentType.BLOCK));
             if (value instanceof MappingNode || value instanceof SequenceNode) {
@@ -228,6 +324,11 @@ public class YamlConfig extends FileConfig {
         return list;
     }
     
+    @Override
+    protected int cacheSettings() {
+        return super.cacheSettings() | (options().primitiveArrays() ? 2 : 0);
+    }
+    
     @Override
     public Options options() {
         if (options == null) {
@@ -243,9 +344,19 @@ public class YamlConfig extends FileConfig {
         return config;
     }
     
+    public static List<FileConfigLoader.LoadResult<YamlConfig>> loadConfigurations(Collection<File> files) {
+        return FileConfigLoader.loadAll(files, YamlConfig::new);
+    }
+    
+    public static List<FileConfigLoader.LoadResult<YamlConfig>> loadConfigurations(Path directory) throws IOException {
+        return FileConfigLoader.loadDirectory(directory, "*.{yml,yaml}", YamlConfig::new);
+    }
+    
     public static class Options extends FileConfig.Options {
         private int indent = 2;
         private int width = 80;
+        private boolean primitiveArrays;
+        private boolean lazySections;
         
         protected Options(YamlConfig configuration) {
             super(configuration);
@@ -268,6 +379,18 @@ public class YamlConfig extends FileConfig {
             return this;
         }
         
+        @Override
+        public Options pathIndex(boolean value) {
+            super.pathIndex(value);
+            return this;
+        }
+
+        @Override
+        public Options interner(Interner value) {
+            super.interner(value);
+            return this;
+        }
+        
         @Override
         public Options setHeader(List<String> value) {
             super.setHeader(value);
@@ -286,12 +409,62 @@ public class YamlConfig extends FileConfig {
             return this;
         }
         
+        @Override
+        public Options atomicReload(boolean value) {
+            super.atomicReload(value);
+            return this;
+        }
+        
+        @Override
+        public Options skipCleanSaves(boolean value) {
+            super.skipCleanSaves(value);
+            return this;
+        }
+        
+        @Override
+        public Options binaryCache(boolean value) {
+            super.binaryCache(value);
+            return this;
+        }
+        
+        @Override
+        public Options memoryMapped(boolean value) {
+            super.memoryMapped(value);
+            return this;
+        }
+        
+        @Override
+        public Options writeBehind(Duration value) {
+            super.writeBehind(value);
+            return this;
+        }
+        
+        public boolean primitiveArrays() {
+            return primitiveArrays;
+        }
+        
+        public Options primitiveArrays(boolean value) {
+            this.primitiveArrays = value;
+            return this;
+        }
+        
+        public boolean lazySections() {
+            return lazySections;
+        }
+        
+        // Nested sections keep their part of the YAML tree and only build their entries when first used
+        public Options lazySections(boolean value) {
+            this.lazySections = value;
+            return this;
+        }
+        
         public int indent() {
             return indent;
         }
         
         public Options indent(int value) {
             this.indent = value;
+            configuration().markModified();
             return this;
         }
         
@@ -301,6 +474,7 @@ public class YamlConfig extends FileConfig {
         
         public Options width(int value) {
             this.width = value;
+            configuration().markModified();
             return this;
         }
     }
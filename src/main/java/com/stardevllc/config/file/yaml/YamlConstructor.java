@@ -27,8 +27,9 @@ public class YamlConstructor extends SafeConstructor {
         super.flattenMapping(node);
     }
 
+    // Clears what was constructed afterwards, so a constructor that is reused does not keep old nodes and values around
     public Object construct(Node node) {
-        return constructObject(node);
+        return constructDocument(node);
     }
 
     private class ConstructCustomObject extends ConstructYamlMap {
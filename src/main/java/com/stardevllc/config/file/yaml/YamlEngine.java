@@ -0,0 +1,82 @@
+package com.stardevllc.config.file.yaml;
+
+import org.yaml.snakeyaml.DumperOptions;
+import org.yaml.snakeyaml.LoaderOptions;
+import org.yaml.snakeyaml.Yaml;
+
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/*
+ * The SnakeYAML objects needed to load and save a YamlConfig. They are pooled per option set and borrowed for the length
+ * of a single load or save, so configs do not each carry their own copies and no two threads ever share one.
+ */
+final class YamlEngine {
+    private static final int MAX_POOLED = 16;
+    private static final Map<Key, Pool> POOLS = new ConcurrentHashMap<>();
+
+    private final Key key;
+    final YamlConstructor constructor;
+    final YamlRepresenter representer;
+    final Yaml yaml;
+
+    private YamlEngine(Key key) {
+        this.key = key;
+
+        DumperOptions dumperOptions = new DumperOptions();
+        dumperOptions.setDefaultFlowStyle(DumperOptions.FlowStyle.BLOCK);
+        dumperOptions.setIndent(key.indent());
+        dumperOptions.setWidth(key.width());
+        dumperOptions.setProcessComments(key.comments());
+
+        LoaderOptions loaderOptions = new LoaderOptions();
+        loaderOptions.setMaxAliasesForCollections(Integer.MAX_VALUE);
+        loaderOptions.setCodePointLimit(Integer.MAX_VALUE);
+        loaderOptions.setNestingDepthLimit(100);
+        loaderOptions.setProcessComments(key.comments());
+
+        constructor = new YamlConstructor(loaderOptions);
+        representer = new YamlRepresenter(dumperOptions);
+        representer.setDefaultFlowStyle(DumperOptions.FlowStyle.BLOCK);
+
+        yaml = new Yaml(constructor, representer, dumperOptions, loaderOptions);
+    }
+
+    static YamlEngine borrow(YamlConfig.Options options) {
+        Key key = new Key(options.indent(), options.width(), options.parseComments());
+        YamlEngine engine = POOLS.computeIfAbsent(key, k -> new Pool()).poll();
+        return engine != null ? engine : new YamlEngine(key);
+    }
+
+    void release() {
+        POOLS.get(key).offer(this);
+    }
+
+    private record Key(int indent, int width, boolean comments) {
+    }
+
+    private static final class Pool {
+        private final Queue<YamlEngine> engines = new ConcurrentLinkedQueue<>();
+        private final AtomicInteger size = new AtomicInteger();
+
+        private YamlEngine poll() {
+            YamlEngine engine = engines.poll();
+            if (engine != null) {
+                size.decrementAndGet();
+            }
+            return engine;
+        }
+
+        private void offer(YamlEngine engine) {
+            // Engines beyond what is needed at once are left to the garbage collector
+            if (size.incrementAndGet() <= MAX_POOLED) {
+                engines.offer(engine);
+            } else {
+                size.decrementAndGet();
+            }
+        }
+    }
+}
@@ -36,7 +36,7 @@ public class YamlRepresenter extends Representer {
             ConfigSerializable serializable = (ConfigSerializable) data;
             Map<String, Object> values = new LinkedHashMap<>();
             values.put(ConfigSerialization.SERIALIZED_TYPE_KEY, ConfigSerialization.getAlias(serializable.getClass()));
-            values.putAll(serializable.serialize());
+            values.putAll(ConfigSerialization.serialize(serializable));
 
             return super.representData(values);
         }
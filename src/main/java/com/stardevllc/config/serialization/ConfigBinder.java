@@ -0,0 +1,361 @@
+package com.stardevllc.config.serialization;
+
+import com.stardevllc.config.Section;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.reflect.*;
+import java.util.*;
+
+import static com.stardevllc.config.NumberConversions.*;
+
+/**
+ * Maps sections onto records and onto classes with {@link ConfigKey} fields, and back.
+ * <p>
+ * The keys, types and method handles of each type are worked out once. Binding then reads the values of a section in a
+ * single pass and converts them, nested sections, lists and maps included, instead of looking up every path on its own.
+ */
+public final class ConfigBinder {
+    // The plan of every type that is not a record and has no @ConfigKey fields, so that is only looked up once as well
+    private static final Plan UNBINDABLE = new Plan(new Property[0], null, false);
+    private static final ClassValue<Plan> PLANS = new ClassValue<>() {
+        @Override
+        protected Plan computeValue(Class<?> type) {
+            return type.isRecord() ? recordPlan(type) : fieldPlan(type);
+        }
+    };
+
+    private ConfigBinder() {
+    }
+
+    public static boolean isBindable(Class<?> type) {
+        return PLANS.get(type) != UNBINDABLE;
+    }
+
+    public static <T> T bind(Section section, Class<T> type) {
+        return type.cast(plan(type).read(section));
+    }
+
+    public static void store(Section section, Object value) {
+        plan(value.getClass()).write(section, value);
+    }
+
+    private static Plan plan(Class<?> type) {
+        Plan plan = PLANS.get(type);
+        if (plan == UNBINDABLE) {
+            throw new IllegalArgumentException(type.getName() + " is not a record and has no @ConfigKey fields");
+        }
+        return plan;
+    }
+
+    private static Plan recordPlan(Class<?> type) {
+        try {
+            MethodHandles.Lookup lookup = MethodHandles.privateLookupIn(type, MethodHandles.lookup());
+            RecordComponent[] components = type.getRecordComponents();
+            Property[] properties = new Property[components.length];
+            Class<?>[] parameterTypes = new Class<?>[components.length];
+            for (int i = 0; i < components.length; i++) {
+                RecordComponent component = components[i];
+                ConfigKey key = component.getAnnotation(ConfigKey.class);
+                MethodHandle getter = lookup.unreflect(component.getAccessor()).asType(MethodType.methodType(Object.class, Object.class));
+                properties[i] = new Property(key == null || key.value().isEmpty() ? component.getName() : key.value(), component.getType(), component.getGenericType(), getter, null);
+                parameterTypes[i] = component.getType();
+            }
+
+            MethodHandle constructor = lookup.findConstructor(type, MethodType.methodType(void.class, parameterTypes));
+            constructor = constructor.asType(constructor.type().generic()).asSpreader(Object[].class, components.length);
+            return new Plan(properties, constructor, true);
+        } catch (ReflectiveOperationException e) {
+            throw new IllegalArgumentException("Cannot bind to " + type.getName(), e);
+        }
+    }
+
+    private static Plan fieldPlan(Class<?> type) {
+        List<Field> fields = new ArrayList<>();
+        for (Class<?> current = type; current != null && current != Object.class; current = current.getSuperclass()) {
+            for (Field field : current.getDeclaredFields()) {
+                if (field.isAnnotationPresent(ConfigKey.class) && !Modifier.isStatic(field.getModifiers())) {
+                    fields.add(field);
+                }
+            }
+        }
+        // Most types that get here are plain values, those are not opened up for lookups
+        if (fields.isEmpty()) {
+            return UNBINDABLE;
+        }
+
+        try {
+            MethodHandles.Lookup lookup = MethodHandles.privateLookupIn(type, MethodHandles.lookup());
+            List<Property> properties = new ArrayList<>(fields.size());
+            for (Field field : fields) {
+                Class<?> current = field.getDeclaringClass();
+                ConfigKey key = field.getAnnotation(ConfigKey.class);
+                MethodHandles.Lookup fieldLookup = current == type ? lookup : MethodHandles.privateLookupIn(current, MethodHandles.lookup());
+                MethodHandle getter = fieldLookup.unreflectGetter(field).asType(MethodType.methodType(Object.class, Object.class));
+                MethodHandle setter = Modifier.isFinal(field.getModifiers()) ? null : fieldLookup.unreflectSetter(field).asType(MethodType.methodType(void.class, Object.class, Object.class));
+                properties.add(new Property(key.value().isEmpty() ? field.getName() : key.value(), field.getType(), field.getGenericType(), getter, setter));
+            }
+
+            MethodHandle constructor = lookup.findConstructor(type, MethodType.methodType(void.class)).asType(MethodType.methodType(Object.class));
+            return new Plan(properties.toArray(new Property[0]), constructor, false);
+        } catch (ReflectiveOperationException e) {
+            throw new IllegalArgumentException("Cannot bind to " + type.getName() + ", it needs a no argument constructor", e);
+        }
+    }
+
+    private static Object convert(Object value, Class<?> type, Type genericType) {
+        if (value == null) {
+            // The default value of the primitive, as a field that was never set would have
+            return type.isPrimitive() ? Array.get(Array.newInstance(type, 1), 0) : null;
+        }
+
+        if (type == int.class || type == Integer.class) {
+            return toInt(value);
+        } else if (type == long.class || type == Long.class) {
+            return toLong(value);
+        } else if (type == double.class || type == Double.class) {
+            return toDouble(value);
+        } else if (type == float.class || type == Float.class) {
+            return toFloat(value);
+        } else if (type == short.class || type == Short.class) {
+            return toShort(value);
+        } else if (type == byte.class || type == Byte.class) {
+            return toByte(value);
+        } else if (type == boolean.class || type == Boolean.class) {
+            return value instanceof Boolean ? value : Boolean.parseBoolean(value.toString());
+        } else if (type == char.class || type == Character.class) {
+            String string = value.toString();
+            return value instanceof Character ? value : string.isEmpty() ? '\0' : string.charAt(0);
+        } else if (type == String.class) {
+            return value.toString();
+        } else if (type.isEnum()) {
+            return type.isInstance(value) ? value : enumValue(type, value.toString());
+        } else if (type == int[].class || type == long[].class || type == double[].class) {
+            return type.isInstance(value) ? value : toArray(value, type);
+        } else if (type.isInstance(value) && !(value instanceof Collection) && !(value instanceof Map)) {
+            return value;
+        } else if ((value instanceof Section || value instanceof Map) && isBindable(type)) {
+            return PLANS.get(type).read(value);
+        } else if (List.class.isAssignableFrom(type) || Collection.class == type) {
+            if (!(value instanceof Collection<?> collection)) {
+                return null;
+            }
+            Type elementType = typeArgument(genericType, 0);
+            List<Object> result = new ArrayList<>(collection.size());
+            for (Object element : collection) {
+                result.add(convert(element, rawType(elementType), elementType));
+            }
+            return result;
+        } else if (Set.class.isAssignableFrom(type)) {
+            if (!(value instanceof Collection<?> collection)) {
+                return null;
+            }
+            Type elementType = typeArgument(genericType, 0);
+            Set<Object> result = new LinkedHashSet<>();
+            for (Object element : collection) {
+                result.add(convert(element, rawType(elementType), elementType));
+            }
+            return result;
+        } else if (Map.class.isAssignableFrom(type)) {
+            Type valueType = typeArgument(genericType, 1);
+            Map<String, Object> result = new LinkedHashMap<>();
+            for (Map.Entry<?, ?> entry : entries(value).entrySet()) {
+                result.put(String.valueOf(entry.getKey()), convert(entry.getValue(), rawType(valueType), valueType));
+            }
+            return result;
+        }
+        return type.isInstance(value) ? value : null;
+    }
+
+    @SuppressWarnings({"unchecked", "rawtypes"})
+    private static Object enumValue(Class<?> type, String name) {
+        try {
+            return Enum.valueOf((Class<? extends Enum>) type, name);
+        } catch (IllegalArgumentException e) {
+            return Enum.valueOf((Class<? extends Enum>) type, name.toUpperCase(Locale.ROOT));
+        }
+    }
+
+    private static Object toArray(Object value, Class<?> type) {
+        if (!(value instanceof List<?> list)) {
+            return Array.newInstance(type.getComponentType(), 0);
+        }
+
+        Object result = Array.newInstance(type.getComponentType(), list.size());
+        for (int i = 0; i < list.size(); i++) {
+            Object element = list.get(i);
+            if (type == int[].class) {
+                Array.setInt(result, i, toInt(element));
+            } else if (type == long[].class) {
+                Array.setLong(result, i, toLong(element));
+            } else {
+                Array.setDouble(result, i, toDouble(element));
+            }
+        }
+        return result;
+    }
+
+    private static Map<?, ?> entries(Object source) {
+        if (source instanceof Section section) {
+            return section.getValues(false);
+        }
+        return source instanceof Map<?, ?> map ? map : Map.of();
+    }
+
+    private static Type typeArgument(Type type, int index) {
+        if (type instanceof ParameterizedType parameterized && parameterized.getActualTypeArguments().length > index) {
+            return parameterized.getActualTypeArguments()[index];
+        }
+        return Object.class;
+    }
+
+    private static Class<?> rawType(Type type) {
+        if (type instanceof Class<?> clazz) {
+            return clazz;
+        } else if (type instanceof ParameterizedType parameterized) {
+            return (Class<?>) parameterized.getRawType();
+        } else if (type instanceof WildcardType wildcard) {
+            return rawType(wildcard.getUpperBounds()[0]);
+        }
+        return Object.class;
+    }
+
+    // Turns a value into what a config can hold, bound objects become sections, enums their names
+    private static Object unconvert(Section section, String key, Object value) {
+        if (value == null) {
+            return null;
+        } else if (value instanceof Enum<?> constant) {
+            return constant.name();
+        } else if (value instanceof Character character) {
+            return character.toString();
+        } else if (value instanceof Float || value instanceof Short || value instanceof Byte) {
+            return value instanceof Float number ? (double) number : ((Number) value).intValue();
+        } else if (!(value instanceof ConfigSerializable) && isBindable(value.getClass())) {
+            Section child = section.createSection(key);
+            PLANS.get(value.getClass()).write(child, value);
+            return child;
+        } else if (value instanceof Collection<?> collection) {
+            List<Object> result = new ArrayList<>(collection.size());
+            for (Object element : collection) {
+                result.add(unconvertElement(element));
+            }
+            return result;
+        } else if (value instanceof Map<?, ?> map) {
+            Section child = section.createSection(key);
+            for (Map.Entry<?, ?> entry : map.entrySet()) {
+                String childKey = String.valueOf(entry.getKey());
+                Object converted = unconvert(child, childKey, entry.getValue());
+                if (converted != child.get(childKey) || !(converted instanceof Section)) {
+                    child.set(childKey, converted);
+                }
+            }
+            return child;
+        }
+        return value;
+    }
+
+    // List elements have no section of their own, so bound objects in lists are stored as maps
+    private static Object unconvertElement(Object value) {
+        if (value != null && !(value instanceof ConfigSerializable) && isBindable(value.getClass())) {
+            Map<String, Object> result = new LinkedHashMap<>();
+            for (Property property : PLANS.get(value.getClass()).properties) {
+                result.put(property.key, unconvertElement(property.get(value)));
+            }
+            return result;
+        } else if (value instanceof Enum<?> constant) {
+            return constant.name();
+        } else if (value instanceof Collection<?> collection) {
+            List<Object> result = new ArrayList<>(collection.size());
+            for (Object element : collection) {
+                result.add(unconvertElement(element));
+            }
+            return result;
+        }
+        return value;
+    }
+
+    private static final class Plan {
+        private final Property[] properties;
+        private final MethodHandle constructor;
+        private final boolean record;
+
+        private Plan(Property[] properties, MethodHandle constructor, boolean record) {
+            this.properties = properties;
+            this.constructor = constructor;
+            this.record = record;
+        }
+
+        private Object read(Object source) {
+            Map<?, ?> values = entries(source);
+            try {
+                if (record) {
+                    Object[] arguments = new Object[properties.length];
+                    for (int i = 0; i < properties.length; i++) {
+                        Property property = properties[i];
+                        arguments[i] = convert(lookup(source, values, property.key), property.type, property.genericType);
+                    }
+                    return constructor.invoke(arguments);
+                }
+
+                Object result = constructor.invoke();
+                for (Property property : properties) {
+                    Object value = lookup(source, values, property.key);
+                    // Missing keys keep whatever the constructor set up
+                    if (value != null && property.setter != null) {
+                        property.setter.invoke(result, convert(value, property.type, property.genericType));
+                    }
+                }
+                return result;
+            } catch (RuntimeException e) {
+                throw e;
+            } catch (Throwable e) {
+                throw new RuntimeException(e);
+            }
+        }
+
+        private Object lookup(Object source, Map<?, ?> values, String key) {
+            Object value = values.get(key);
+            // Defaults are only visible through the section itself
+            if (value == null && source instanceof Section section) {
+                value = section.get(key);
+            }
+            return value;
+        }
+
+        private void write(Section section, Object value) {
+            for (Property property : properties) {
+                Object converted = unconvert(section, property.key, property.get(value));
+                if (!(converted instanceof Section)) {
+                    section.set(property.key, converted);
+                }
+            }
+        }
+    }
+
+    private static final class Property {
+        private final String key;
+        private final Class<?> type;
+        private final Type genericType;
+        private final MethodHandle getter;
+        private final MethodHandle setter;
+
+        private Property(String key, Class<?> type, Type genericType, MethodHandle getter, MethodHandle setter) {
+            this.key = key;
+            this.type = type;
+            this.genericType = genericType;
+            this.getter = getter;
+            this.setter = setter;
+        }
+
+        private Object get(Object target) {
+            try {
+                return getter.invoke(target);
+            } catch (RuntimeException e) {
+                throw e;
+            } catch (Throwable e) {
+                throw new RuntimeException(e);
+            }
+        }
+    }
+}
@@ -0,0 +1,13 @@
+package com.stardevllc.config.serialization;
+
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+// Marks a field as bound to a section key by ConfigBinder, or renames a record component. An empty value uses the name as is
+@Retention(RetentionPolicy.RUNTIME)
+@Target({ElementType.FIELD, ElementType.RECORD_COMPONENT})
+public @interface ConfigKey {
+    String value() default "";
+}
@@ -1,18 +1,55 @@
 package com.stardevllc.config.serialization;
 
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
 import java.lang.reflect.Constructor;
+import java.lang.reflect.Executable;
 import java.lang.reflect.InvocationTargetException;
 import java.lang.reflect.Method;
 import java.lang.reflect.Modifier;
 import java.util.HashMap;
+import java.util.Iterator;
 import java.util.Map;
+import java.util.ServiceConfigurationError;
+import java.util.ServiceLoader;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 
 public class ConfigSerialization {
     public static final String SERIALIZED_TYPE_KEY = "==";
     private final Class<? extends ConfigSerializable> clazz;
-    private static Map<String, Class<? extends ConfigSerializable>> aliases = new HashMap<>();
+    // Copy on write, registrations are rare while every load reads it, so reads never lock or see a half made change
+    private static volatile Map<String, Class<? extends ConfigSerializable>> aliases = Map.of();
+    private static final Object REGISTRY_LOCK = new Object();
+    
+    // Annotations never change, so the alias a class is saved under only has to be worked out once
+    private static final ClassValue<String> CLASS_ALIASES = new ClassValue<>() {
+        @Override
+        @SuppressWarnings("unchecked")
+        protected String computeValue(Class<?> type) {
+            return resolveAlias((Class<? extends ConfigSerializable>) type);
+        }
+    };
+    private static final MethodType FACTORY_TYPE = MethodType.methodType(ConfigSerializable.class, Map.class);
+    
+    // The deserialize(Map), valueOf(Map) and Map constructor factories of each class, looked up once and kept as method handles
+    private static final ClassValue<Deserializers> DESERIALIZERS = new ClassValue<>() {
+        @Override
+        @SuppressWarnings("unchecked")
+        protected Deserializers computeValue(Class<?> type) {
+            ConfigSerialization serialization = new ConfigSerialization((Class<? extends ConfigSerializable>) type);
+            return new Deserializers(type, serialization.unreflect(serialization.getMethod("deserialize")),
+                    serialization.unreflect(serialization.getMethod("valueOf")), serialization.unreflect(serialization.getConstructor()));
+        }
+    };
+
+    // Generated serializers by the type they handle, copy on write like the aliases
+    private static volatile Map<Class<?>, ConfigSerializer<?>> serializers = Map.of();
+    
+    static {
+        loadSerializers(ConfigSerialization.class.getClassLoader());
+    }
 
     protected ConfigSerialization(Class<? extends ConfigSerializable> clazz) {
         this.clazz = clazz;
@@ -35,6 +72,21 @@ public class ConfigSerialization {
         }
     }
 
+    private MethodHandle unreflect(Executable executable) {
+        if (executable == null) {
+            return null;
+        }
+        
+        try {
+            MethodHandles.Lookup lookup = MethodHandles.lookup();
+            MethodHandle handle = executable instanceof Method method ? lookup.unreflect(method) : lookup.unreflectConstructor((Constructor<?>) executable);
+            return handle.asType(FACTORY_TYPE);
+        } catch (IllegalAccessException ex) {
+            Logger.getLogger(ConfigSerialization.class.getName()).log(Level.SEVERE, "Could not access '" + executable + "' of " + clazz + " for deserialization", ex);
+            return null;
+        }
+    }
+    
     protected Constructor<? extends ConfigSerializable> getConstructor() {
         try {
             return clazz.getConstructor(Map.class);
@@ -75,16 +127,16 @@ public class ConfigSerialization {
         return null;
     }
 
+    // Subclasses may override the lookups and the deserializeVia methods, those go through them instead of the cached handles
     public ConfigSerializable deserialize(Map<String, ?> args) {
-        ConfigSerializable result = null;
-        Method method;
-
-        if (result == null) {
-            method = getMethod("deserialize");
+        if (getClass() == ConfigSerialization.class) {
+            return deserialize(clazz, args);
+        }
 
-            if (method != null) {
-                result = deserializeViaMethod(method, args);
-            }
+        ConfigSerializable result = null;
+        Method method = getMethod("deserialize");
+        if (method != null) {
+            result = deserializeViaMethod(method, args);
         }
 
         if (result == null) {
@@ -107,7 +159,21 @@ public class ConfigSerialization {
     }
     
     public static ConfigSerializable deserializeObject(Map<String, ?> args, Class<? extends ConfigSerializable> clazz) {
-        return new ConfigSerialization(clazz).deserialize(args);
+        return deserialize(clazz, args);
+    }
+    
+    private static ConfigSerializable deserialize(Class<? extends ConfigSerializable> clazz, Map<String, ?> args) {
+        ConfigSerializer<?> serializer = serializers.get(clazz);
+        if (serializer != null) {
+            return serializer.deserialize(args);
+        }
+        return DESERIALIZERS.get(clazz).deserialize(args);
+    }
+    
+    // Prefers a generated serializer over the serialize() of the object
+    public static Map<String, Object> serialize(ConfigSerializable value) {
+        ConfigSerializer<ConfigSerializable> serializer = getSerializer(value.getClass());
+        return serializer != null ? serializer.serialize(value) : value.serialize();
     }
     
     public static ConfigSerializable deserializeObject(Map<String, ?> args) {
@@ -132,28 +198,88 @@ public class ConfigSerialization {
             throw new IllegalArgumentException("Args doesn't contain type key ('" + SERIALIZED_TYPE_KEY + "')");
         }
 
-        return new ConfigSerialization(clazz).deserialize(args);
+        return deserialize(clazz, args);
+    }
+    
+    // Registers every serializer listed in the META-INF/services of the class loader, the one of this library is done on start
+    public static void loadSerializers(ClassLoader classLoader) {
+        // ServiceLoader only takes the raw class
+        @SuppressWarnings("rawtypes")
+        Iterator<ConfigSerializer> iterator = ServiceLoader.load(ConfigSerializer.class, classLoader).iterator();
+        while (true) {
+            try {
+                if (!iterator.hasNext()) {
+                    break;
+                }
+                registerSerializer(iterator.next());
+            } catch (ServiceConfigurationError ex) {
+                // The loader moves on to the next listed serializer
+                Logger.getLogger(ConfigSerialization.class.getName()).log(Level.SEVERE, "Could not load a serializer", ex);
+            }
+        }
+    }
+    
+    public static void registerSerializer(ConfigSerializer<?> serializer) {
+        Class<?> type = serializer.getType();
+        synchronized (REGISTRY_LOCK) {
+            Map<Class<?>, ConfigSerializer<?>> updatedSerializers = new HashMap<>(serializers);
+            updatedSerializers.put(type, serializer);
+            Map<String, Class<? extends ConfigSerializable>> updatedAliases = new HashMap<>(aliases);
+            updatedAliases.put(serializer.getAlias(), serializer.getType());
+            updatedAliases.put(type.getName(), serializer.getType());
+            serializers = updatedSerializers;
+            aliases = updatedAliases;
+        }
+    }
+    
+    @SuppressWarnings("unchecked")
+    public static <T extends ConfigSerializable> ConfigSerializer<T> getSerializer(Class<?> clazz) {
+        return (ConfigSerializer<T>) serializers.get(clazz);
     }
     
     public static void registerClass(Class<? extends ConfigSerializable> clazz) {
         DelegateDeserialization delegate = clazz.getAnnotation(DelegateDeserialization.class);
 
         if (delegate == null) {
-            registerClass(clazz, getAlias(clazz));
-            registerClass(clazz, clazz.getName());
+            register(clazz, getAlias(clazz), clazz.getName());
         }
     }
     
     public static void registerClass(Class<? extends ConfigSerializable> clazz, String alias) {
-        aliases.put(alias, clazz);
+        register(clazz, alias);
+    }
+
+    private static void register(Class<? extends ConfigSerializable> clazz, String... names) {
+        synchronized (REGISTRY_LOCK) {
+            Map<String, Class<? extends ConfigSerializable>> updated = new HashMap<>(aliases);
+            for (String name : names) {
+                updated.put(name, clazz);
+            }
+            aliases = updated;
+        }
+        // Resolves the factories now rather than on the first object that needs them
+        DESERIALIZERS.get(clazz);
     }
 
     public static void unregisterClass(String alias) {
-        aliases.remove(alias);
+        synchronized (REGISTRY_LOCK) {
+            Map<String, Class<? extends ConfigSerializable>> updated = new HashMap<>(aliases);
+            updated.remove(alias);
+            aliases = updated;
+        }
     }
     
     public static void unregisterClass(Class<? extends ConfigSerializable> clazz) {
-        aliases.values().remove(clazz);
+        synchronized (REGISTRY_LOCK) {
+            Map<String, Class<? extends ConfigSerializable>> updated = new HashMap<>(aliases);
+            updated.values().removeIf(registered -> registered == clazz);
+            aliases = updated;
+            if (serializers.containsKey(clazz)) {
+                Map<Class<?>, ConfigSerializer<?>> updatedSerializers = new HashMap<>(serializers);
+                updatedSerializers.remove(clazz);
+                serializers = updatedSerializers;
+            }
+        }
     }
 
     public static Class<? extends ConfigSerializable> getClassByAlias(String alias) {
@@ -161,6 +287,10 @@ public class ConfigSerialization {
     }
     
     public static String getAlias(Class<? extends ConfigSerializable> clazz) {
+        return CLASS_ALIASES.get(clazz);
+    }
+    
+    private static String resolveAlias(Class<? extends ConfigSerializable> clazz) {
         DelegateDeserialization delegate = clazz.getAnnotation(DelegateDeserialization.class);
 
         if (delegate != null) {
@@ -181,4 +311,47 @@ public class ConfigSerialization {
 
         return clazz.getName();
     }
+
+    private static final class Deserializers {
+        private final Class<?> type;
+        private final MethodHandle deserialize;
+        private final MethodHandle valueOf;
+        private final MethodHandle constructor;
+        
+        private Deserializers(Class<?> type, MethodHandle deserialize, MethodHandle valueOf, MethodHandle constructor) {
+            this.type = type;
+            this.deserialize = deserialize;
+            this.valueOf = valueOf;
+            this.constructor = constructor;
+        }
+        
+        // Same order as before, the first factory that produces an object wins
+        private ConfigSerializable deserialize(Map<String, ?> args) {
+            ConfigSerializable result = invoke(deserialize, "deserialize", args);
+            if (result == null) {
+                result = invoke(valueOf, "valueOf", args);
+            }
+            if (result == null) {
+                result = invoke(constructor, "<init>", args);
+            }
+            return result;
+        }
+        
+        private ConfigSerializable invoke(MethodHandle handle, String name, Map<String, ?> args) {
+            if (handle == null) {
+                return null;
+            }
+            
+            try {
+                ConfigSerializable result = (ConfigSerializable) handle.invokeExact((Map) args);
+                if (result == null) {
+                    Logger.getLogger(ConfigSerialization.class.getName()).log(Level.SEVERE, "Could not call method '" + name + "' of " + type + " for deserialization: method returned null");
+                }
+                return result;
+            } catch (Throwable ex) {
+                Logger.getLogger(ConfigSerialization.class.getName()).log(Level.SEVERE, "Could not call '" + name + "' of " + type + " for deserialization", ex);
+                return null;
+            }
+        }
+    }
 }
@@ -0,0 +1,19 @@
+package com.stardevllc.config.serialization;
+
+import java.util.Map;
+
+/**
+ * Serializes and deserializes one {@link ConfigSerializable} type with plain calls instead of reflection.
+ * <p>
+ * The annotation processor writes one of these for every type marked with {@link GenerateSerializer} and lists it in
+ * {@code META-INF/services}, where {@link ConfigSerialization} finds and registers it through {@link java.util.ServiceLoader}.
+ */
+public interface ConfigSerializer<T extends ConfigSerializable> {
+    Class<T> getType();
+
+    String getAlias();
+
+    Map<String, Object> serialize(T value);
+
+    T deserialize(Map<String, ?> args);
+}
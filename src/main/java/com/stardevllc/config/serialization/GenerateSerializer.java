@@ -0,0 +1,13 @@
+package com.stardevllc.config.serialization;
+
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+// Has the config-processor annotation processor generate a ConfigSerializer for a record, see ConfigSerializer.
+// The record implements serialize() by calling the static toMap of the generated <Record>ConfigSerializer
+@Retention(RetentionPolicy.CLASS)
+@Target(ElementType.TYPE)
+public @interface GenerateSerializer {
+}
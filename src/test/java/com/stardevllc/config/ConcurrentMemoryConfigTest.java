@@ -0,0 +1,145 @@
+package com.stardevllc.config;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.*;
+import java.util.concurrent.*;
+
+import static com.stardevllc.config.Threads.runConcurrently;
+import static org.junit.jupiter.api.Assertions.*;
+
+public class ConcurrentMemoryConfigTest {
+    private static final int THREADS = 8;
+    private static final int WRITES = 2_000;
+
+    @Test
+    public void writesFromManyThreadsAreNotLost() throws Exception {
+        ConcurrentMemoryConfig config = new ConcurrentMemoryConfig();
+        runConcurrently(THREADS, thread -> {
+            for (int i = 0; i < WRITES; i++) {
+                config.set("shared.t" + thread + "k" + i, i);
+                config.set("own" + thread + ".k" + i, i);
+            }
+        });
+
+        for (int thread = 0; thread < THREADS; thread++) {
+            for (int i = 0; i < WRITES; i++) {
+                assertEquals(i, config.getInt("shared.t" + thread + "k" + i));
+                assertEquals(i, config.getInt("own" + thread + ".k" + i));
+            }
+        }
+        assertEquals(THREADS * WRITES, config.getSection("shared").getKeys(false).size());
+        assertEquals(THREADS * WRITES * 2 + THREADS + 1, config.getKeys(true).size());
+    }
+
+    @Test
+    public void sectionsCreatedAtTheSameTimeAreShared() throws Exception {
+        for (int round = 0; round < 50; round++) {
+            ConcurrentMemoryConfig config = new ConcurrentMemoryConfig();
+            runConcurrently(THREADS, thread -> config.set("a.b.c.t" + thread, thread));
+
+            assertEquals(THREADS, config.getSection("a.b.c").getKeys(false).size());
+            for (int thread = 0; thread < THREADS; thread++) {
+                assertEquals(thread, config.getInt("a.b.c.t" + thread));
+            }
+        }
+    }
+
+    @Test
+    public void readingKeysWhileWritingNeverFails() throws Exception {
+        ConcurrentMemoryConfig config = new ConcurrentMemoryConfig();
+        CountDownLatch writersDone = new CountDownLatch(THREADS / 2);
+        runConcurrently(THREADS, thread -> {
+            if (thread % 2 == 0) {
+                try {
+                    for (int i = 0; i < WRITES; i++) {
+                        String path = "s" + (i % 16) + ".t" + thread + "k" + i;
+                        config.set(path, i);
+                        if (i % 3 == 0) {
+                            config.set(path, null);
+                        }
+                        if (i % 500 == 0) {
+                            config.set("s" + (i % 16), null);
+                        }
+                    }
+                } finally {
+                    writersDone.countDown();
+                }
+            } else {
+                while (writersDone.getCount() > 0) {
+                    for (String key : config.getKeys(true)) {
+                        assertNotNull(key);
+                    }
+                    config.getValues(true);
+                }
+            }
+        });
+
+        // Everything the keys report must also be readable
+        for (String key : config.getKeys(true)) {
+            assertTrue(config.contains(key), key);
+        }
+    }
+
+    @Test
+    public void insertionOrderIsKept() throws Exception {
+        ConcurrentMemoryConfig config = new ConcurrentMemoryConfig();
+        List<String> expected = new ArrayList<>();
+        for (int i = 0; i < 100; i++) {
+            expected.add("key" + (99 - i));
+            config.set("key" + (99 - i), i);
+        }
+        runConcurrently(THREADS, thread -> {
+            for (int i = 0; i < WRITES; i++) {
+                config.set("key" + (i % 100), i);
+            }
+        });
+
+        assertEquals(expected, new ArrayList<>(config.getKeys(false)));
+    }
+
+    @Test
+    public void writesDuringAReloadEndUpInOneOfTheMaps() throws Exception {
+        reloadWhileWriting(new ConcurrentMemoryConfig());
+    }
+
+    @Test
+    public void pathIndexFollowsWritesDuringAReload() throws Exception {
+        ConcurrentMemoryConfig config = new ConcurrentMemoryConfig();
+        config.options().pathIndex(true);
+        reloadWhileWriting(config);
+        assertTrue(config.isPathIndexed());
+    }
+
+    // Reads after the reloads go through the path index when it is on, so they must agree with the entries themselves
+    private static void reloadWhileWriting(ConcurrentMemoryConfig config) throws Exception {
+        CountDownLatch writersDone = new CountDownLatch(THREADS - 1);
+        runConcurrently(THREADS, thread -> {
+            if (thread == 0) {
+                int round = 0;
+                while (writersDone.getCount() > 0) {
+                    int current = round++;
+                    config.replaceEntries(section -> section.set("reload.round", current));
+                }
+            } else {
+                try {
+                    for (int i = 0; i < WRITES; i++) {
+                        config.set("w" + thread + ".k" + (i % 32), i);
+                        if (i % 100 == 0) {
+                            config.set("w" + thread, null);
+                        }
+                    }
+                } finally {
+                    writersDone.countDown();
+                }
+            }
+        });
+
+        for (String key : config.getKeys(true)) {
+            assertTrue(config.contains(key), key);
+        }
+        for (Map.Entry<String, Object> entry : config.getValues(true).entrySet()) {
+            assertEquals(entry.getValue(), config.get(entry.getKey()), entry.getKey());
+        }
+    }
+}
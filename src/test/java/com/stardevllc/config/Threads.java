@@ -0,0 +1,44 @@
+package com.stardevllc.config;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.*;
+
+public final class Threads {
+    private Threads() {
+    }
+
+    public interface Task {
+        void run(int thread) throws Exception;
+    }
+
+    // Starts every task at once and rethrows the first failure
+    public static void runConcurrently(int threads, Task task) throws Exception {
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        try {
+            CountDownLatch start = new CountDownLatch(1);
+            List<Future<?>> futures = new ArrayList<>();
+            for (int thread = 0; thread < threads; thread++) {
+                int current = thread;
+                futures.add(executor.submit(() -> {
+                    start.await();
+                    task.run(current);
+                    return null;
+                }));
+            }
+            start.countDown();
+            for (Future<?> future : futures) {
+                try {
+                    future.get(60, TimeUnit.SECONDS);
+                } catch (ExecutionException e) {
+                    if (e.getCause() instanceof Exception exception) {
+                        throw exception;
+                    }
+                    throw new AssertionError(e.getCause());
+                }
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+}
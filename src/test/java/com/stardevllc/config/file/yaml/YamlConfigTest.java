@@ -0,0 +1,33 @@
+package com.stardevllc.config.file.yaml;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class YamlConfigTest {
+    private static final String BROKEN_SECTION = "top: {ok: 1, bad: {\"==\": does.not.Exist, x: 1}, after: 2}\nother: 3\n";
+
+    @TempDir
+    Path directory;
+
+    @Test
+    public void lazySectionThatFailsToLoadIsNeverSeenHalfFilled() throws Exception {
+        Path file = directory.resolve("broken.yml");
+        Files.writeString(file, BROKEN_SECTION);
+        YamlConfig config = new YamlConfig(file.toFile());
+        config.options().lazySections(true);
+        config.load();
+
+        assertEquals(3, config.getInt("other"));
+        assertThrows(RuntimeException.class, () -> config.get("top.ok"));
+        // The section failed as a whole, so it keeps failing instead of showing what was loaded before the error
+        assertThrows(RuntimeException.class, () -> config.get("top.after"));
+        assertThrows(RuntimeException.class, () -> config.getKeys(true));
+        assertThrows(RuntimeException.class, config::save);
+        assertEquals(BROKEN_SECTION, Files.readString(file));
+    }
+}
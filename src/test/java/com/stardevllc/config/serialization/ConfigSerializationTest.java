@@ -0,0 +1,134 @@
+package com.stardevllc.config.serialization;
+
+import com.stardevllc.config.file.yaml.YamlConfig;
+import org.junit.jupiter.api.Test;
+
+import java.io.File;
+import java.io.StringReader;
+import java.io.StringWriter;
+import java.util.*;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static com.stardevllc.config.Threads.runConcurrently;
+import static org.junit.jupiter.api.Assertions.*;
+
+public class ConfigSerializationTest {
+    private static final int THREADS = 8;
+    private static final int ROUNDS = 500;
+
+    @SerializableAs("StressPoint")
+    public static final class Point implements ConfigSerializable {
+        private final int x;
+        private final int y;
+
+        public Point(int x, int y) {
+            this.x = x;
+            this.y = y;
+        }
+
+        public static Point deserialize(Map<String, Object> args) {
+            return new Point((Integer) args.get("x"), (Integer) args.get("y"));
+        }
+
+        @Override
+        public Map<String, Object> serialize() {
+            Map<String, Object> values = new LinkedHashMap<>();
+            values.put("x", x);
+            values.put("y", y);
+            return values;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            return o instanceof Point point && point.x == x && point.y == y;
+        }
+
+        @Override
+        public int hashCode() {
+            return 31 * x + y;
+        }
+    }
+
+    public static final class Churn implements ConfigSerializable {
+        public static Churn deserialize(Map<String, Object> args) {
+            return new Churn();
+        }
+
+        @Override
+        public Map<String, Object> serialize() {
+            return new LinkedHashMap<>();
+        }
+    }
+
+    @Test
+    public void lookupsNeverMissWhileOtherAliasesChange() throws Exception {
+        ConfigSerialization.registerClass(Point.class);
+        AtomicBoolean done = new AtomicBoolean();
+        runConcurrently(THREADS, thread -> {
+            if (thread < 2) {
+                try {
+                    for (int i = 0; i < ROUNDS; i++) {
+                        String alias = "churn-" + thread + "-" + i;
+                        ConfigSerialization.registerClass(Churn.class, alias);
+                        assertEquals(Churn.class, ConfigSerialization.getClassByAlias(alias));
+                        ConfigSerialization.unregisterClass(alias);
+                        assertNull(ConfigSerialization.getClassByAlias(alias));
+                    }
+                } finally {
+                    done.set(true);
+                }
+            } else {
+                while (!done.get()) {
+                    assertEquals(Point.class, ConfigSerialization.getClassByAlias("StressPoint"));
+                    assertEquals(Point.class, ConfigSerialization.getClassByAlias(Point.class.getName()));
+                    assertEquals("StressPoint", ConfigSerialization.getAlias(Point.class));
+                }
+            }
+        });
+    }
+
+    @Test
+    public void parallelLoadsAndSavesWhileRegistering() throws Exception {
+        ConfigSerialization.registerClass(Point.class);
+        AtomicBoolean done = new AtomicBoolean();
+        runConcurrently(THREADS, thread -> {
+            if (thread == 0) {
+                try {
+                    for (int i = 0; i < ROUNDS; i++) {
+                        ConfigSerialization.registerClass(Churn.class, "load-churn-" + i);
+                        ConfigSerialization.unregisterClass("load-churn-" + i);
+                    }
+                } finally {
+                    done.set(true);
+                }
+            } else {
+                int round = 0;
+                while (!done.get() || round < 10) {
+                    YamlConfig config = new YamlConfig((File) null);
+                    for (int i = 0; i < 20; i++) {
+                        config.set("points.p" + i, new Point(thread, round + i));
+                    }
+                    StringWriter writer = new StringWriter();
+                    config.save(writer);
+
+                    YamlConfig loaded = new YamlConfig((File) null);
+                    loaded.load(new StringReader(writer.toString()));
+                    for (int i = 0; i < 20; i++) {
+                        assertEquals(new Point(thread, round + i), loaded.get("points.p" + i));
+                    }
+                    round++;
+                }
+            }
+        });
+    }
+
+    @Test
+    public void unregisteringByClassRemovesEveryAlias() {
+        ConfigSerialization.registerClass(Churn.class, "first-churn");
+        ConfigSerialization.registerClass(Churn.class, "second-churn");
+        ConfigSerialization.unregisterClass(Churn.class);
+
+        assertNull(ConfigSerialization.getClassByAlias("first-churn"));
+        assertNull(ConfigSerialization.getClassByAlias("second-churn"));
+    }
+}